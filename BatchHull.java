@@ -0,0 +1,294 @@
+/**
+ * BatchHull.java
+ *
+ * A headless command-line driver that computes the quick hull of many
+ * point files in parallel, one PointSet per file.
+ *
+ * Usage:
+ *   java -Djava.awt.headless=true BatchHull [-threads n] [-out dir] [-list file] [-quiet] file|dir ...
+ *
+ * Each input file holds one point per line as two integers separated by
+ * whitespace or a comma; blank lines and lines starting with # are ignored.
+ * For every input a file named <input>.hull is written to the output directory
+ * (the input's own directory by default) holding the hull vertices in
+ * counter-clockwise order, one per line. Every file's result is printed as
+ * it completes; with -quiet only the files that failed are, followed by the
+ * summary either way.
+ *
+ * This class must never touch Swing; java.awt.Point and the java.awt.Polygon
+ * PointSet uses are plain data classes and are safe to use headless.
+ **/
+
+import java.awt.Point;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class BatchHull {
+	// the outcome of computing the hull for a single file
+	private static class Result {
+		Path file;
+		int numPoints;
+		int hullSize;
+		long nanos;
+		String error;
+	}
+
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private Path outDir = null;
+	private boolean quiet = false;
+	private ArrayList<Path> inputs = new ArrayList<Path>();
+
+	public static void main(String[] args) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+
+		BatchHull batch = new BatchHull();
+		try {
+			batch.parseArgs(args);
+		}
+		catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("usage: java -Djava.awt.headless=true BatchHull "
+					+ "[-threads n] [-out dir] [-list file] [-quiet] file|dir ...");
+			System.exit(2);
+		}
+		int failures = batch.run();
+		System.exit(failures == 0 ? 0 : 1);
+	}
+
+	// reads the command line options and expands directories into their files
+	private void parseArgs(String[] args) throws IOException {
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("-threads") && i + 1 < args.length) {
+				threads = Integer.parseInt(args[++i]);
+				if (threads < 1)
+					throw new IllegalArgumentException("-threads must be at least 1");
+			}
+			else if (arg.equals("-out") && i + 1 < args.length) {
+				outDir = Paths.get(args[++i]);
+			}
+			else if (arg.equals("-list") && i + 1 < args.length) {
+				for (String line : Files.readAllLines(Paths.get(args[++i]))) {
+					line = line.trim();
+					if (!line.isEmpty() && !line.startsWith("#"))
+						addInput(Paths.get(line));
+				}
+			}
+			else if (arg.equals("-quiet")) {
+				quiet = true;
+			}
+			else if (arg.startsWith("-")) {
+				throw new IllegalArgumentException("unknown option " + arg);
+			}
+			else {
+				addInput(Paths.get(arg));
+			}
+		}
+		if (inputs.isEmpty())
+			throw new IllegalArgumentException("no input files");
+	}
+
+	// adds a file, or every regular file in a directory that is not itself a hull output
+	private void addInput(Path path) throws IOException {
+		if (Files.isDirectory(path)) {
+			ArrayList<Path> children = new ArrayList<Path>();
+			try (DirectoryStream<Path> dir = Files.newDirectoryStream(path)) {
+				for (Path child : dir)
+					if (Files.isRegularFile(child) && !child.toString().endsWith(".hull"))
+						children.add(child);
+			}
+			Collections.sort(children);
+			inputs.addAll(children);
+		}
+		else {
+			inputs.add(path);
+		}
+	}
+
+	/**
+	 * Computes the hull of every input on a fixed thread pool and prints
+	 * per-file and aggregate throughput
+	 * @return the number of files that failed
+	 */
+	public int run() throws InterruptedException, IOException {
+		if (outDir != null)
+			Files.createDirectories(outDir);
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ArrayList<Result> results = new ArrayList<Result>(inputs.size());
+		long start = System.nanoTime();
+		try {
+			ArrayList<Future<Result>> futures = new ArrayList<Future<Result>>(inputs.size());
+			for (final Path file : inputs) {
+				futures.add(pool.submit(new Callable<Result>() {
+					public Result call() {
+						return process(file);
+					}
+				}));
+			}
+
+			for (int i = 0; i < futures.size(); i++) {
+				Result result;
+				try {
+					result = futures.get(i).get();
+				}
+				catch (ExecutionException e) {
+					// anything process did not catch fails just its own file
+					result = new Result();
+					result.file = inputs.get(i);
+					result.error = e.getCause().toString();
+				}
+				results.add(result);
+				if (!quiet || result.error != null)
+					printResult(result);
+			}
+		}
+		finally {
+			// the pool's threads are not daemons and would keep the JVM alive
+			pool.shutdownNow();
+		}
+		long wallNanos = System.nanoTime() - start;
+
+		printSummary(results, wallNanos);
+
+		int failures = 0;
+		for (Result result : results)
+			if (result.error != null)
+				failures++;
+		return failures;
+	}
+
+	// reads one file, computes its hull and writes the hull file
+	private Result process(Path file) {
+		Result result = new Result();
+		result.file = file;
+		long start = System.nanoTime();
+		try {
+			PointSet set = new PointSet();
+			set.addPoints(readPoints(file));
+			result.numPoints = set.getNumber();
+
+			ArrayList<Point> hull = set.getQuickHullVertices();
+			result.hullSize = hull.size();
+			writeHull(hullFile(file), hull);
+		}
+		catch (IOException | RuntimeException | OutOfMemoryError | StackOverflowError e) {
+			// a file too big for the heap, or deep enough to overflow the
+			// recursion, fails on its own; its points are garbage once caught
+			result.error = e.toString();
+		}
+		result.nanos = System.nanoTime() - start;
+		return result;
+	}
+
+	/**
+	 * Reads the points from a file, one "x y" or "x,y" pair per line
+	 * @param file
+	 * @return the points in file order, possibly with duplicates
+	 */
+	public static ArrayList<Point> readPoints(Path file) throws IOException {
+		ArrayList<Point> pts = new ArrayList<Point>();
+		try (BufferedReader in = Files.newBufferedReader(file)) {
+			String line;
+			int lineNumber = 0;
+			while ((line = in.readLine()) != null) {
+				lineNumber++;
+				Point pt = parsePoint(line, file + ":" + lineNumber);
+				if (pt != null)
+					pts.add(pt);
+			}
+		}
+		return pts;
+	}
+
+	/**
+	 * Parses one line of a point file
+	 * @param line
+	 * @param where the file and line number, for error messages
+	 * @return the point, or null for a blank or comment line
+	 */
+	public static Point parsePoint(String line, String where) throws IOException {
+		line = line.trim();
+		if (line.isEmpty() || line.startsWith("#"))
+			return null;
+		String[] fields = line.split("[\\s,]+");
+		if (fields.length != 2)
+			throw new IOException(where + ": expected two coordinates");
+		Point pt;
+		try {
+			pt = new Point(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]));
+		}
+		catch (NumberFormatException e) {
+			throw new IOException(where + ": " + e.getMessage());
+		}
+		if (!Line.inRange(pt.x, pt.y))
+			throw new IOException(where + ": coordinates must be within " + Line.MAX_COORDINATE + " of zero");
+		return pt;
+	}
+
+	private Path hullFile(Path input) {
+		Path name = Paths.get(input.getFileName() + ".hull");
+		if (outDir != null)
+			return outDir.resolve(name);
+		Path parent = input.toAbsolutePath().getParent();
+		return parent == null ? name : parent.resolve(name);
+	}
+
+	private static void writeHull(Path file, ArrayList<Point> hull) throws IOException {
+		try (BufferedWriter out = Files.newBufferedWriter(file)) {
+			for (Point pt : hull) {
+				out.write(pt.x + " " + pt.y);
+				out.newLine();
+			}
+		}
+	}
+
+	private static void printResult(Result result) {
+		if (result.error != null) {
+			System.out.println(result.file + "\tFAILED\t" + result.error);
+			return;
+		}
+		double seconds = result.nanos / 1e9;
+		System.out.printf("%s\t%d points\t%d hull\t%.3f ms\t%.0f points/sec%n",
+				result.file, result.numPoints, result.hullSize,
+				result.nanos / 1e6, seconds > 0 ? result.numPoints / seconds : 0.0);
+	}
+
+	private void printSummary(ArrayList<Result> results, long wallNanos) {
+		long totalPoints = 0;
+		int succeeded = 0;
+		long[] latencies = new long[results.size()];
+		for (Result result : results) {
+			if (result.error == null) {
+				totalPoints += result.numPoints;
+				latencies[succeeded++] = result.nanos;
+			}
+		}
+		latencies = Arrays.copyOf(latencies, succeeded);
+		Arrays.sort(latencies);
+
+		double seconds = wallNanos / 1e9;
+		System.out.println();
+		System.out.printf("files: %d (%d failed)  threads: %d  wall: %.3f s%n",
+				results.size(), results.size() - succeeded, threads, seconds);
+		System.out.printf("throughput: %.1f files/sec  %.0f points/sec%n",
+				results.size() / seconds, totalPoints / seconds);
+		if (succeeded > 0) {
+			System.out.printf("latency ms: p50 %.3f  p90 %.3f  p99 %.3f  max %.3f%n",
+					percentile(latencies, 50) / 1e6, percentile(latencies, 90) / 1e6,
+					percentile(latencies, 99) / 1e6, latencies[latencies.length - 1] / 1e6);
+		}
+	}
+
+	/**
+	 * Returns the nearest-rank percentile of an ascending array
+	 * @param sorted
+	 * @param p the percentile, from 0 to 100
+	 */
+	public static long percentile(long[] sorted, double p) {
+		int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+		return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+	}
+}
@@ -0,0 +1,219 @@
+/**
+ * ClusterHulls.java
+ *
+ * Computes the convex hulls of many small point sets in one call, without
+ * building a PointSet, Polygon or Point per set. All the points live in two
+ * flat coordinate arrays, and an offsets array marks where each cluster
+ * starts: cluster c is the points [offsets[c], offsets[c+1]). The hulls come
+ * back the same way, as point indexes into the coordinate arrays with their
+ * own offsets array.
+ *
+ * Each hull is a monotone chain over the cluster sorted with IndexSort,
+ * which for a few dozen points is a plain insertion sort. Larger clusters
+ * first drop the points inside the octagon of their extreme points, so
+ * that only a few are sorted. Clusters are spread over the common
+ * fork/join pool when there are enough points.
+ **/
+
+import java.util.*;
+import java.util.concurrent.*;
+
+public class ClusterHulls {
+	// ranges of clusters with fewer points than this are computed on the current thread
+	private static final int PARALLEL_THRESHOLD = 1 << 14;
+	// clusters with fewer points than this are sorted whole, without discarding interior points first
+	private static final int OCTAGON_THRESHOLD = 32;
+
+	// hull vertex indexes, cluster after cluster
+	private final int[] vertices;
+	// hull c is vertices[offsets[c], offsets[c+1])
+	private final int[] offsets;
+
+	private ClusterHulls(int[] vertices, int[] offsets) {
+		this.vertices = vertices;
+		this.offsets = offsets;
+	}
+
+	/**
+	 * Computes the hull of every cluster. Each hull lists the indexes of its
+	 * vertices in counter-clockwise order, starting from its lowest leftmost
+	 * point, without collinear or repeated points. A cluster whose points
+	 * are all equal has a one point hull and an empty cluster an empty one.
+	 * Coordinates must pass Line.inRange.
+	 * @param xs x coordinates of all the points
+	 * @param ys y coordinates of all the points
+	 * @param offsets the start of every cluster followed by the end of the last, non-decreasing
+	 * @return the hulls, indexed like offsets
+	 */
+	public static ClusterHulls compute(int[] xs, int[] ys, int[] offsets) {
+		if (offsets.length == 0 || offsets[0] < 0 || xs.length != ys.length
+				|| offsets[offsets.length-1] > xs.length)
+			throw new IllegalArgumentException("offsets do not fit the coordinate arrays");
+		int clusters = offsets.length - 1;
+		for (int c=0; c<clusters; c++)
+			if (offsets[c+1] < offsets[c])
+				throw new IllegalArgumentException("offsets decrease at cluster " + c);
+		for (int i=offsets[0]; i<offsets[clusters]; i++)
+			if (!Line.inRange(xs[i], ys[i]))
+				throw new IllegalArgumentException("coordinate out of range at point " + i);
+
+		// a hull has no more vertices than its cluster has points, so each one
+		// is first written where its cluster's points start
+		int base = offsets[0];
+		int[] hulls = new int[offsets[clusters] - base];
+		int[] counts = new int[clusters];
+		Solve solve = new Solve(xs, ys, offsets, hulls, counts, 0, clusters);
+		if (hulls.length >= PARALLEL_THRESHOLD && clusters > 1)
+			ForkJoinPool.commonPool().invoke(solve);
+		else
+			solve.compute();
+
+		int[] hullOffsets = new int[clusters + 1];
+		for (int c=0; c<clusters; c++)
+			hullOffsets[c+1] = hullOffsets[c] + counts[c];
+		int[] vertices = new int[hullOffsets[clusters]];
+		for (int c=0; c<clusters; c++)
+			System.arraycopy(hulls, offsets[c] - base, vertices, hullOffsets[c], counts[c]);
+		return new ClusterHulls(vertices, hullOffsets);
+	}
+
+	/**
+	 * Returns the number of clusters
+	 */
+	public int size() {
+		return offsets.length - 1;
+	}
+
+	/**
+	 * Returns the vertex indexes of every hull, one after another;
+	 * the array is shared, not copied
+	 */
+	public int[] getVertices() {
+		return vertices;
+	}
+
+	/**
+	 * Returns where every hull starts in getVertices(), followed by the end
+	 * of the last; the array is shared, not copied
+	 */
+	public int[] getOffsets() {
+		return offsets;
+	}
+
+	/**
+	 * Returns the vertex indexes of the hull of cluster c
+	 * @param c
+	 */
+	public int[] getHull(int c) {
+		int[] hull = new int[offsets[c+1] - offsets[c]];
+		System.arraycopy(vertices, offsets[c], hull, 0, hull.length);
+		return hull;
+	}
+
+	// computes the hulls of clusters [lo,hi), splitting while there are enough points
+	private static class Solve extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int[] xs, ys, offsets, hulls, counts;
+		private final int lo, hi;
+
+		Solve(int[] xs, int[] ys, int[] offsets, int[] hulls, int[] counts, int lo, int hi) {
+			this.xs = xs;
+			this.ys = ys;
+			this.offsets = offsets;
+			this.hulls = hulls;
+			this.counts = counts;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected void compute() {
+			if (hi - lo < 2 || offsets[hi] - offsets[lo] < PARALLEL_THRESHOLD) {
+				solveRange();
+				return;
+			}
+			int mid = (lo + hi) >>> 1;
+			invokeAll(new Solve(xs, ys, offsets, hulls, counts, lo, mid),
+					new Solve(xs, ys, offsets, hulls, counts, mid, hi));
+		}
+
+		private void solveRange() {
+			int largest = 0;
+			for (int c=lo; c<hi; c++)
+				largest = Math.max(largest, offsets[c+1] - offsets[c]);
+			int[] idx = new int[largest], scratch = new int[largest];
+			int[] chain = new int[largest + 1];
+			int base = offsets[0];
+
+			for (int c=lo; c<hi; c++) {
+				int from = offsets[c];
+				int m = keepOutsideOctagon(from, offsets[c+1], idx);
+				IndexSort.sortByXY(idx, 0, m, xs, ys, scratch);
+
+				// lower chain left to right, then upper chain back, which ends
+				// on the first point again
+				int top = 0;
+				for (int k=0; k<m; k++)
+					top = PointSet.pushHullPoint(chain, top, 0, idx[k], xs, ys);
+				int lowerEnd = top;
+				for (int k=m-2; k>=0; k--)
+					top = PointSet.pushHullPoint(chain, top, lowerEnd - 1, idx[k], xs, ys);
+				if (top > 1)
+					top--;
+				System.arraycopy(chain, 0, hulls, from - base, top);
+				counts[c] = top;
+			}
+		}
+
+		// stores in idx the points of [from,to) not strictly inside the octagon
+		// through the extreme points in x, y, x+y and x-y, which can be no hull
+		// vertices, and returns how many there are
+		private int keepOutsideOctagon(int from, int to, int[] idx) {
+			if (to - from < OCTAGON_THRESHOLD) {
+				for (int i=from; i<to; i++)
+					idx[i - from] = i;
+				return to - from;
+			}
+			// counter-clockwise from the leftmost: x, x+y, y, x-y, then the maxima
+			int[] octagon = new int[8];
+			Arrays.fill(octagon, from);
+			for (int i=from+1; i<to; i++) {
+				if (xs[i] < xs[octagon[0]])
+					octagon[0] = i;
+				if ((long) xs[i] + ys[i] < (long) xs[octagon[1]] + ys[octagon[1]])
+					octagon[1] = i;
+				if (ys[i] < ys[octagon[2]])
+					octagon[2] = i;
+				if ((long) xs[i] - ys[i] > (long) xs[octagon[3]] - ys[octagon[3]])
+					octagon[3] = i;
+				if (xs[i] > xs[octagon[4]])
+					octagon[4] = i;
+				if ((long) xs[i] + ys[i] > (long) xs[octagon[5]] + ys[octagon[5]])
+					octagon[5] = i;
+				if (ys[i] > ys[octagon[6]])
+					octagon[6] = i;
+				if ((long) xs[i] - ys[i] < (long) xs[octagon[7]] - ys[octagon[7]])
+					octagon[7] = i;
+			}
+			// all the points are equal, and every edge would be degenerate
+			if (xs[octagon[0]] == xs[octagon[4]] && ys[octagon[2]] == ys[octagon[6]]) {
+				idx[0] = from;
+				return 1;
+			}
+
+			int m = 0;
+			for (int i=from; i<to; i++) {
+				boolean inside = true;
+				for (int e=0; e<8 && inside; e++) {
+					int a = octagon[e], b = octagon[(e + 1) & 7];
+					// a point on the clockwise side of an edge, or on its line, is kept;
+					// Line.determinant is negative on the counter-clockwise side
+					inside = (xs[a] == xs[b] && ys[a] == ys[b])
+							|| Line.determinant(xs[a], ys[a], xs[b], ys[b], xs[i], ys[i]) < 0;
+				}
+				if (!inside)
+					idx[m++] = i;
+			}
+			return m;
+		}
+	}
+}
@@ -0,0 +1,388 @@
+/**
+ * HullCoordinator.java
+ *
+ * Computes the hull of a point source too large for one JVM by sharding it
+ * across HullWorker processes on this machine. The coordinator streams
+ * shards to the workers over loopback sockets, each worker answers with only
+ * the hull of its shard, and the coordinator merges those partial hulls into
+ * the final hull with HullMerge. At most one shard per worker is held in
+ * memory at a time.
+ *
+ * Usage:
+ *   java -Djava.awt.headless=true HullCoordinator [-workers n] [-shard points] [-workerHeap size]
+ *        [-failWorker shards] [-scale] (-random n [-range r] [-seed s] | file)
+ *
+ * A worker that dies, reports an error, or takes longer than the shard's
+ * timeout to answer has its shard put back on the queue for the remaining
+ * workers, and a worker that timed out is killed; a shard that fails
+ * MAX_ATTEMPTS times fails the job. If some workers never connect, the job
+ * runs with those that did. -failWorker makes the first worker crash after that many shards.
+ * -scale repeats the job with 1, 2, 4, ... up to -workers workers and prints
+ * the speedup of each.
+ **/
+
+import java.awt.Point;
+import java.io.*;
+import java.net.*;
+import java.nio.file.*;
+import java.util.*;
+
+public class HullCoordinator {
+	// a shard is given up after failing on this many workers
+	public static final int MAX_ATTEMPTS = 3;
+	// how long to wait for spawned workers to connect back
+	private static final int CONNECT_TIMEOUT_MILLIS = 30000;
+	// how often to check whether the workers still expected have exited
+	private static final int ACCEPT_POLL_MILLIS = 500;
+	// a worker must answer a shard within this much time, plus a millisecond
+	// for every POINTS_PER_MILLI points in it
+	private static final int BASE_READ_TIMEOUT_MILLIS = 10000;
+	private static final int POINTS_PER_MILLI = 100;
+
+	private int workers = Runtime.getRuntime().availableProcessors();
+	private int shardSize = 1 << 20;
+	private String workerHeap = "512m";
+	private int failWorker = -1;
+	private boolean scale = false;
+	private long randomPoints = -1;
+	private int range = 1 << 20;
+	private long seed = 1;
+	private Path file = null;
+
+	// a batch of points and the number of times a worker has failed on it
+	private static class Shard {
+		final int id;
+		final ArrayList<Point> points;
+		int attempts = 0;
+
+		Shard(int id, ArrayList<Point> points) {
+			this.id = id;
+			this.points = points;
+		}
+	}
+
+	/**
+	 * Hands out shards read lazily from the point source, and shards whose
+	 * worker failed. A worker asking for a shard when the source is
+	 * exhausted waits while other shards are still in flight, since any of
+	 * them may yet come back.
+	 */
+	private class ShardQueue {
+		private final BufferedReader reader;
+		private final Random random;
+		private long remaining;
+		private int nextId = 0;
+		private int lineNumber = 0;
+		private boolean exhausted = false;
+		private int inFlight = 0;
+		private final ArrayDeque<Shard> retry = new ArrayDeque<Shard>();
+		private IOException failure = null;
+
+		ShardQueue() throws IOException {
+			if (file != null) {
+				reader = Files.newBufferedReader(file);
+				random = null;
+			}
+			else {
+				reader = null;
+				random = new Random(seed);
+				remaining = randomPoints;
+			}
+		}
+
+		// returns the next shard to compute, or null when there is nothing left to do
+		synchronized Shard take() throws IOException, InterruptedException {
+			while (true) {
+				if (failure != null)
+					throw failure;
+				Shard shard = retry.poll();
+				if (shard == null && !exhausted) {
+					shard = readShard();
+					if (shard == null)
+						exhausted = true;
+				}
+				if (shard != null) {
+					inFlight++;
+					return shard;
+				}
+				if (inFlight == 0)
+					return null;
+				wait();
+			}
+		}
+
+		synchronized void done(Shard shard) {
+			inFlight--;
+			notifyAll();
+		}
+
+		synchronized void failed(Shard shard, String reason) {
+			inFlight--;
+			shard.attempts++;
+			System.err.println("shard " + shard.id + " failed (" + reason + ")"
+					+ (shard.attempts < MAX_ATTEMPTS ? ", reassigning" : ", giving up"));
+			if (shard.attempts < MAX_ATTEMPTS)
+				retry.add(shard);
+			else
+				failure = new IOException("shard " + shard.id + " failed " + MAX_ATTEMPTS + " times");
+			notifyAll();
+		}
+
+		// reads or generates the next shard from the source
+		private Shard readShard() throws IOException {
+			ArrayList<Point> pts = new ArrayList<Point>(shardSize);
+			if (reader != null) {
+				String line;
+				while (pts.size() < shardSize && (line = reader.readLine()) != null) {
+					lineNumber++;
+					Point pt = BatchHull.parsePoint(line, file + ":" + lineNumber);
+					if (pt != null)
+						pts.add(pt);
+				}
+			}
+			else {
+				while (pts.size() < shardSize && remaining > 0) {
+					pts.add(new Point(random.nextInt(range), random.nextInt(range)));
+					remaining--;
+				}
+			}
+			return pts.isEmpty() ? null : new Shard(nextId++, pts);
+		}
+
+		synchronized void close() throws IOException {
+			if (reader != null)
+				reader.close();
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+
+		HullCoordinator coordinator = new HullCoordinator();
+		try {
+			coordinator.parseArgs(args);
+		}
+		catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("usage: java -Djava.awt.headless=true HullCoordinator [-workers n] "
+					+ "[-shard points] [-workerHeap size] [-failWorker shards] [-scale] "
+					+ "(-random n [-range r] [-seed s] | file)");
+			System.exit(2);
+		}
+
+		if (coordinator.scale) {
+			coordinator.runScaling();
+		}
+		else {
+			long start = System.nanoTime();
+			ArrayList<Point> hull = coordinator.run(coordinator.workers);
+			System.out.printf("hull: %d vertices in %.3f s%n", hull.size(), (System.nanoTime() - start) / 1e9);
+			for (Point pt : hull)
+				System.out.println(pt.x + " " + pt.y);
+		}
+	}
+
+	private void parseArgs(String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("-scale"))
+				scale = true;
+			else if (arg.startsWith("-") && i + 1 >= args.length)
+				throw new IllegalArgumentException("missing value for " + arg);
+			else if (arg.equals("-workers"))
+				workers = Integer.parseInt(args[++i]);
+			else if (arg.equals("-shard"))
+				shardSize = Integer.parseInt(args[++i]);
+			else if (arg.equals("-workerHeap"))
+				workerHeap = args[++i];
+			else if (arg.equals("-failWorker"))
+				failWorker = Integer.parseInt(args[++i]);
+			else if (arg.equals("-random"))
+				randomPoints = Long.parseLong(args[++i]);
+			else if (arg.equals("-range"))
+				range = Integer.parseInt(args[++i]);
+			else if (arg.equals("-seed"))
+				seed = Long.parseLong(args[++i]);
+			else if (arg.startsWith("-"))
+				throw new IllegalArgumentException("unknown option " + arg);
+			else
+				file = Paths.get(arg);
+		}
+		if ((file == null) == (randomPoints < 0))
+			throw new IllegalArgumentException("give exactly one of -random n or a point file");
+		if (workers < 1 || shardSize < 1 || shardSize > HullProtocol.MAX_POINTS)
+			throw new IllegalArgumentException("bad -workers or -shard");
+		if (range < 1 || range > Line.MAX_COORDINATE + 1)
+			throw new IllegalArgumentException("-range must be between 1 and " + (Line.MAX_COORDINATE + 1));
+	}
+
+	// runs the job with a growing number of workers and reports the speedup
+	private void runScaling() throws IOException, InterruptedException {
+		System.out.println("workers\tseconds\tpoints/sec\tspeedup");
+		double baseline = 0;
+		for (int n = 1; ; n = Math.min(n * 2, workers)) {
+			long start = System.nanoTime();
+			long[] points = new long[1];
+			run(n, points);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			if (baseline == 0)
+				baseline = seconds;
+			System.out.printf("%d\t%.3f\t%.0f\t%.2f%n", n, seconds, points[0] / seconds, baseline / seconds);
+			if (n == workers)
+				break;
+		}
+	}
+
+	/**
+	 * Computes the hull of the point source with the given number of worker processes
+	 * @param numWorkers
+	 * @return the hull vertices in counter-clockwise order
+	 */
+	public ArrayList<Point> run(int numWorkers) throws IOException, InterruptedException {
+		return run(numWorkers, new long[1]);
+	}
+
+	// as run(numWorkers), also storing the number of points processed in pointCount[0]
+	private ArrayList<Point> run(int numWorkers, long[] pointCount) throws IOException, InterruptedException {
+		final ShardQueue queue = new ShardQueue();
+		final ArrayList<ArrayList<Point>> partialHulls = new ArrayList<ArrayList<Point>>();
+		final long[] points = new long[1];
+		ArrayList<Process> processes = new ArrayList<Process>();
+		ArrayList<Socket> sockets = new ArrayList<Socket>();
+
+		try (ServerSocket server = new ServerSocket(0, numWorkers, InetAddress.getLoopbackAddress())) {
+			for (int w = 0; w < numWorkers; w++)
+				processes.add(spawnWorker(server.getLocalPort(), w == 0 ? failWorker : -1));
+
+			HashMap<Socket, Process> owners = acceptWorkers(server, processes, sockets);
+
+			ArrayList<Thread> threads = new ArrayList<Thread>();
+			for (final Socket socket : sockets) {
+				final Process process = owners.get(socket);
+				Thread thread = new Thread(() -> feedWorker(socket, process, queue, partialHulls, points),
+						"hull-coordinator-" + threads.size());
+				thread.start();
+				threads.add(thread);
+			}
+			for (Thread thread : threads)
+				thread.join();
+
+			// every worker thread has exited; anything left means they all died
+			Shard leftover = queue.take();
+			if (leftover != null)
+				throw new IOException("all workers failed with shard " + leftover.id + " unfinished");
+		}
+		finally {
+			queue.close();
+			for (Socket socket : sockets)
+				socket.close();
+			for (Process process : processes) {
+				if (!process.waitFor(5, java.util.concurrent.TimeUnit.SECONDS))
+					process.destroyForcibly();
+			}
+		}
+
+		pointCount[0] = points[0];
+		return HullMerge.mergeAllVertices(partialHulls);
+	}
+
+	// waits for the spawned workers to connect and says which process owns
+	// each connection; it gives up on the rest once CONNECT_TIMEOUT_MILLIS
+	// has passed or every worker still expected has exited, and kills them
+	private HashMap<Socket, Process> acceptWorkers(ServerSocket server, ArrayList<Process> processes,
+			ArrayList<Socket> sockets) throws IOException {
+		HashMap<Long, Process> byPid = new HashMap<Long, Process>();
+		for (Process process : processes)
+			byPid.put(process.pid(), process);
+		HashMap<Socket, Process> owners = new HashMap<Socket, Process>();
+
+		long deadline = System.nanoTime() + CONNECT_TIMEOUT_MILLIS * 1000000L;
+		server.setSoTimeout(ACCEPT_POLL_MILLIS);
+		while (!byPid.isEmpty() && System.nanoTime() < deadline) {
+			Socket socket;
+			try {
+				socket = server.accept();
+			}
+			catch (SocketTimeoutException e) {
+				boolean anyAlive = false;
+				for (Process process : byPid.values())
+					anyAlive |= process.isAlive();
+				if (!anyAlive)
+					break;
+				continue;
+			}
+			sockets.add(socket);
+			socket.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+			long pid = new DataInputStream(socket.getInputStream()).readLong();
+			Process process = byPid.remove(pid);
+			if (process == null)
+				throw new IOException("unexpected connection from process " + pid);
+			owners.put(socket, process);
+		}
+
+		for (Process process : byPid.values()) {
+			System.err.println("worker process " + process.pid() + " did not connect; continuing without it");
+			process.destroyForcibly();
+		}
+		if (owners.isEmpty())
+			throw new IOException("no worker connected within " + CONNECT_TIMEOUT_MILLIS + " ms");
+		return owners;
+	}
+
+	// sends shards to one worker until the queue is empty or the worker fails;
+	// a worker that does not answer in time is killed
+	private void feedWorker(Socket socket, Process process, ShardQueue queue,
+			ArrayList<ArrayList<Point>> partialHulls, long[] points) {
+		try {
+			socket.setTcpNoDelay(true);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			Shard shard;
+			while ((shard = queue.take()) != null) {
+				ArrayList<Point> hull;
+				try {
+					socket.setSoTimeout(BASE_READ_TIMEOUT_MILLIS + shard.points.size() / POINTS_PER_MILLI);
+					HullProtocol.writePoints(out, shard.points);
+					out.flush();
+					hull = HullProtocol.readHull(in);
+				}
+				catch (SocketTimeoutException e) {
+					queue.failed(shard, "no answer within " + socket.getSoTimeout() + " ms");
+					process.destroyForcibly();
+					return;
+				}
+				catch (IOException e) {
+					queue.failed(shard, e.toString());
+					return;  // this worker is gone or unreliable
+				}
+				synchronized (partialHulls) {
+					partialHulls.add(hull);
+					points[0] += shard.points.size();
+				}
+				queue.done(shard);
+			}
+		}
+		catch (IOException e) {
+			// the queue failed for good; run() reports it through take()
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private Process spawnWorker(int port, int failAfter) throws IOException {
+		ArrayList<String> command = new ArrayList<String>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		command.add("-Djava.awt.headless=true");
+		command.add("-Xmx" + workerHeap);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add("HullWorker");
+		command.add(Integer.toString(port));
+		if (failAfter >= 0) {
+			command.add("-failAfter");
+			command.add(Integer.toString(failAfter));
+		}
+		return new ProcessBuilder(command).inheritIO().start();
+	}
+}
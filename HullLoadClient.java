@@ -0,0 +1,165 @@
+/**
+ * HullLoadClient.java
+ *
+ * A load generator for HullServer. It opens many concurrent connections,
+ * each sending a stream of random point batches, and reports throughput
+ * and a latency histogram.
+ *
+ * Usage:
+ *   java -Djava.awt.headless=true HullLoadClient [-host h] [-port p] [-clients n] [-requests n] [-points n] [-range n] [-seed s]
+ **/
+
+import java.awt.Point;
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HullLoadClient {
+	private String host = "127.0.0.1";
+	private int port = 7070;
+	private int clients = 1000;
+	private int requestsPerClient = 100;
+	private int pointsPerRequest = 32;
+	private int range = 1000;
+	private long seed = 1;
+
+	public static void main(String[] args) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+
+		HullLoadClient client = new HullLoadClient();
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (i + 1 >= args.length)
+				usage("missing value for " + arg);
+			else if (arg.equals("-host"))
+				client.host = args[++i];
+			else if (arg.equals("-port"))
+				client.port = Integer.parseInt(args[++i]);
+			else if (arg.equals("-clients"))
+				client.clients = Integer.parseInt(args[++i]);
+			else if (arg.equals("-requests"))
+				client.requestsPerClient = Integer.parseInt(args[++i]);
+			else if (arg.equals("-points"))
+				client.pointsPerRequest = Integer.parseInt(args[++i]);
+			else if (arg.equals("-range"))
+				client.range = Integer.parseInt(args[++i]);
+			else if (arg.equals("-seed"))
+				client.seed = Long.parseLong(args[++i]);
+			else
+				usage("unknown option " + arg);
+		}
+		if (client.range < 1 || client.range > Line.MAX_COORDINATE + 1)
+			usage("-range must be between 1 and " + (Line.MAX_COORDINATE + 1));
+		if (client.clients < 1 || client.requestsPerClient < 0)
+			usage("-clients must be at least 1 and -requests at least 0");
+		// every request's latency is kept in one array
+		if ((long) client.clients * client.requestsPerClient > Integer.MAX_VALUE)
+			usage("-clients times -requests must be at most " + Integer.MAX_VALUE);
+		System.exit(client.run() == 0 ? 0 : 1);
+	}
+
+	private static void usage(String message) {
+		System.err.println(message);
+		System.err.println("usage: java -Djava.awt.headless=true HullLoadClient [-host h] [-port p] "
+				+ "[-clients n] [-requests n] [-points n] [-range n] [-seed s]");
+		System.exit(2);
+	}
+
+	/**
+	 * Runs every client to completion and prints the report
+	 * @return the number of requests that failed
+	 */
+	public int run() throws InterruptedException {
+		final long[] latencies = new long[Math.toIntExact((long) clients * requestsPerClient)];
+		final AtomicInteger completed = new AtomicInteger();
+		final AtomicInteger failed = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch(clients);
+
+		ExecutorService pool = HullProtocol.newThreadPerTaskExecutor();
+		long start = System.nanoTime();
+		for (int c = 0; c < clients; c++) {
+			final int client = c;
+			pool.execute(() -> {
+				int[] answered = new int[1];
+				try {
+					runClient(client, latencies, completed, answered);
+				}
+				catch (IOException e) {
+					failed.addAndGet(requestsPerClient - answered[0]);
+					System.err.println("client " + client + ": " + e);
+				}
+				finally {
+					done.countDown();
+				}
+			});
+		}
+		done.await();
+		long wallNanos = System.nanoTime() - start;
+		pool.shutdown();
+
+		int count = completed.get();
+		long[] sorted = Arrays.copyOf(latencies, count);
+		Arrays.sort(sorted);
+		printReport(sorted, failed.get(), wallNanos);
+		return failed.get();
+	}
+
+	// sends this client's requests one after another over a single connection
+	private void runClient(int client, long[] latencies, AtomicInteger completed, int[] answered)
+			throws IOException {
+		Random random = new Random(seed * 31 + client);
+		try (Socket socket = new Socket(host, port)) {
+			socket.setTcpNoDelay(true);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			ArrayList<Point> pts = new ArrayList<Point>(pointsPerRequest);
+			for (int r = 0; r < requestsPerClient; r++) {
+				pts.clear();
+				for (int i = 0; i < pointsPerRequest; i++)
+					pts.add(new Point(random.nextInt(range), random.nextInt(range)));
+
+				long sent = System.nanoTime();
+				HullProtocol.writePoints(out, pts);
+				out.flush();
+				HullProtocol.readHull(in);
+				latencies[completed.getAndIncrement()] = System.nanoTime() - sent;
+				answered[0]++;
+			}
+		}
+	}
+
+	private void printReport(long[] sorted, int failed, long wallNanos) {
+		double seconds = wallNanos / 1e9;
+		System.out.printf("clients: %d  requests: %d ok, %d failed  points/request: %d  wall: %.3f s%n",
+				clients, sorted.length, failed, pointsPerRequest, seconds);
+		System.out.printf("throughput: %.0f requests/sec  %.0f points/sec%n",
+				sorted.length / seconds, (double) sorted.length * pointsPerRequest / seconds);
+		if (sorted.length == 0)
+			return;
+		System.out.printf("latency us: p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n",
+				BatchHull.percentile(sorted, 50) / 1e3, BatchHull.percentile(sorted, 90) / 1e3,
+				BatchHull.percentile(sorted, 99) / 1e3, BatchHull.percentile(sorted, 99.9) / 1e3,
+				sorted[sorted.length - 1] / 1e3);
+
+		// power-of-two microsecond buckets
+		int[] buckets = new int[64];
+		int first = 63, last = 0;
+		for (long nanos : sorted) {
+			int bucket = 64 - Long.numberOfLeadingZeros(Math.max(1, nanos / 1000));
+			buckets[bucket]++;
+			first = Math.min(first, bucket);
+			last = Math.max(last, bucket);
+		}
+		int widest = 0;
+		for (int count : buckets)
+			widest = Math.max(widest, count);
+		System.out.println("latency histogram:");
+		for (int b = first; b <= last; b++) {
+			long upper = 1L << b;
+			int bar = (int) Math.round(50.0 * buckets[b] / widest);
+			System.out.printf("  < %8d us %8d %s%n", upper, buckets[b], "#".repeat(bar));
+		}
+	}
+}
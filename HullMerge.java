@@ -0,0 +1,357 @@
+/**
+ * HullMerge.java
+ *
+ * Merges convex hulls that were computed independently into the hull of
+ * their union, without looking at any interior points again. Hulls are
+ * given and returned in the counter-clockwise vertex order getQuickHull()
+ * produces; the repeated end points and collinear vertices that order may
+ * contain are accepted, and results start at the leftmost (then lowest)
+ * vertex with neither. Coordinates must pass Line.inRange.
+ *
+ * Merging two hulls of h1 and h2 vertices takes O(h1 + h2): hulls that are
+ * separated along x are joined by walking to their upper and lower bridges,
+ * and any other pair by merging their lower and upper chains, which are
+ * already sorted, and running one monotone chain pass over each. mergeAll
+ * reduces k hulls as a balanced tree of pairwise merges.
+ **/
+
+import java.awt.Point;
+import java.awt.Polygon;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class HullMerge {
+	// subtrees of the reduction with fewer hulls than this are merged on the current thread
+	private static final int PARALLEL_THRESHOLD = 16;
+
+	private HullMerge() {
+	}
+
+	// a strictly convex polygon in counter-clockwise order, starting at its
+	// lexicographically smallest vertex
+	private static class Hull {
+		final int[] xs, ys;
+		final int n;
+
+		Hull(int[] xs, int[] ys, int n) {
+			this.xs = xs;
+			this.ys = ys;
+			this.n = n;
+		}
+
+		// the lexicographically largest vertex, where the lower chain ends
+		int rightmost() {
+			int r = 0;
+			for (int i = 1; i < n; i++)
+				if (xs[i] > xs[r] || (xs[i] == xs[r] && ys[i] > ys[r]))
+					r = i;
+			return r;
+		}
+	}
+
+	/**
+	 * Returns the hull of the union of two hulls
+	 * @param a a hull as returned by getQuickHull()
+	 * @param b a hull as returned by getQuickHull()
+	 */
+	public static Polygon merge(Polygon a, Polygon b) {
+		Hull merged = merge(normalize(a.xpoints, a.ypoints, a.npoints), normalize(b.xpoints, b.ypoints, b.npoints));
+		return new Polygon(Arrays.copyOf(merged.xs, merged.n), Arrays.copyOf(merged.ys, merged.n), merged.n);
+	}
+
+	/**
+	 * Returns the hull of the union of two hulls
+	 * @param a hull vertices in counter-clockwise order
+	 * @param b hull vertices in counter-clockwise order
+	 */
+	public static ArrayList<Point> merge(List<Point> a, List<Point> b) {
+		return toPoints(merge(toHull(a), toHull(b)));
+	}
+
+	/**
+	 * Returns the hull of the union of any number of hulls
+	 * @param hulls hulls as returned by getQuickHull()
+	 */
+	public static Polygon mergeAll(List<Polygon> hulls) {
+		Hull[] normalized = new Hull[hulls.size()];
+		for (int i = 0; i < normalized.length; i++) {
+			Polygon p = hulls.get(i);
+			normalized[i] = normalize(p.xpoints, p.ypoints, p.npoints);
+		}
+		Hull merged = reduce(normalized);
+		return new Polygon(Arrays.copyOf(merged.xs, merged.n), Arrays.copyOf(merged.ys, merged.n), merged.n);
+	}
+
+	/**
+	 * Returns the hull of the union of any number of hulls
+	 * @param hulls lists of hull vertices in counter-clockwise order
+	 */
+	public static ArrayList<Point> mergeAllVertices(List<? extends List<Point>> hulls) {
+		Hull[] normalized = new Hull[hulls.size()];
+		for (int i = 0; i < normalized.length; i++)
+			normalized[i] = toHull(hulls.get(i));
+		return toPoints(reduce(normalized));
+	}
+
+	/**
+	 * Returns a hull's vertices in the order the merges return them: from
+	 * the leftmost (then lowest) vertex, without repeated points or
+	 * collinear vertices
+	 * @param vertices hull vertices in counter-clockwise order
+	 */
+	public static ArrayList<Point> normalize(List<Point> vertices) {
+		if (vertices.isEmpty())
+			return new ArrayList<Point>();
+		return toPoints(toHull(vertices));
+	}
+
+	// merges the hulls pairwise as a balanced tree, in parallel for large k
+	private static Hull reduce(Hull[] hulls) {
+		if (hulls.length == 0)
+			return new Hull(new int[0], new int[0], 0);
+		if (hulls.length < PARALLEL_THRESHOLD)
+			return reduce(hulls, 0, hulls.length);
+		return ForkJoinPool.commonPool().invoke(new Reduce(hulls, 0, hulls.length));
+	}
+
+	private static Hull reduce(Hull[] hulls, int lo, int hi) {
+		if (hi - lo == 1)
+			return hulls[lo];
+		int mid = (lo + hi) >>> 1;
+		return merge(reduce(hulls, lo, mid), reduce(hulls, mid, hi));
+	}
+
+	private static class Reduce extends RecursiveTask<Hull> {
+		private static final long serialVersionUID = 1L;
+		private final Hull[] hulls;
+		private final int lo, hi;
+
+		Reduce(Hull[] hulls, int lo, int hi) {
+			this.hulls = hulls;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected Hull compute() {
+			if (hi - lo < PARALLEL_THRESHOLD)
+				return reduce(hulls, lo, hi);
+			int mid = (lo + hi) >>> 1;
+			Reduce left = new Reduce(hulls, lo, mid);
+			left.fork();
+			Hull right = new Reduce(hulls, mid, hi).compute();
+			return merge(left.join(), right);
+		}
+	}
+
+	private static Hull merge(Hull a, Hull b) {
+		if (a.n == 0)
+			return b;
+		if (b.n == 0)
+			return a;
+		// a hull's first vertex is its leftmost, so compare it with the other's rightmost
+		if (a.xs[a.rightmost()] < b.xs[0])
+			return bridge(a, b);
+		if (b.xs[b.rightmost()] < a.xs[0])
+			return bridge(b, a);
+		return mergeChains(a, b);
+	}
+
+	// joins a hull with one lying entirely to its right through their upper and lower bridges
+	private static Hull bridge(Hull a, Hull b) {
+		int ra = a.rightmost(), rb = b.rightmost();
+
+		// lower bridge: step along a's lower chain to the left and b's lower chain to
+		// the right while the next vertex lies on or below the line between them;
+		// each chain ends at its hull's leftmost or rightmost vertex
+		int i = ra, j = 0;
+		boolean moved = true;
+		while (moved) {
+			moved = false;
+			while (turn(a, i, b, j, b, (j + 1) % b.n) <= 0 && b.n > 1 && j != rb) {
+				j = (j + 1) % b.n;
+				moved = true;
+			}
+			while (turn(a, i, b, j, a, (i - 1 + a.n) % a.n) <= 0 && a.n > 1 && i != 0) {
+				i = (i - 1 + a.n) % a.n;
+				moved = true;
+			}
+		}
+		int lowA = i, lowB = j;
+
+		// upper bridge: step along a's upper chain to the left and b's upper chain to
+		// the right while the next vertex lies on or above the line between them
+		i = ra;
+		j = 0;
+		moved = true;
+		while (moved) {
+			moved = false;
+			while (turn(a, i, b, j, b, (j - 1 + b.n) % b.n) >= 0 && b.n > 1 && j != rb) {
+				j = (j - 1 + b.n) % b.n;
+				moved = true;
+			}
+			while (turn(a, i, b, j, a, (i + 1) % a.n) >= 0 && a.n > 1 && i != 0) {
+				i = (i + 1) % a.n;
+				moved = true;
+			}
+		}
+		int upA = i, upB = j;
+
+		// a from its first vertex to the lower bridge, b from there round to the
+		// upper bridge, then a back to its first vertex
+		int capacity = a.n + b.n;
+		int[] xs = new int[capacity], ys = new int[capacity];
+		int n = 0;
+		for (int k = 0; k <= lowA; k++, n++) {
+			xs[n] = a.xs[k];
+			ys[n] = a.ys[k];
+		}
+		for (int k = lowB; ; k = (k + 1) % b.n) {
+			xs[n] = b.xs[k];
+			ys[n++] = b.ys[k];
+			if (k == upB)
+				break;
+		}
+		// an upper bridge ending at a's first vertex closes the polygon, and a
+		// vertex at both bridges has already been written
+		if (upA != 0) {
+			for (int k = upA == lowA ? upA + 1 : upA; k < a.n; k++, n++) {
+				xs[n] = a.xs[k];
+				ys[n] = a.ys[k];
+			}
+		}
+		return normalize(xs, ys, n);
+	}
+
+	// the negated Line.determinant for the points a[i], b[j], c[k]: positive when
+	// c is on the inner side of the line from a[i] to b[j] for a counter-clockwise hull
+	private static long turn(Hull a, int i, Hull b, int j, Hull c, int k) {
+		return -Line.determinant(a.xs[i], a.ys[i], b.xs[j], b.ys[j], c.xs[k], c.ys[k]);
+	}
+
+	// general merge: the lower chains of both hulls, merged in sorted order, hold
+	// every vertex of the merged lower hull, and likewise for the upper chains
+	private static Hull mergeChains(Hull a, Hull b) {
+		int ra = a.rightmost(), rb = b.rightmost();
+		int[] xs = new int[a.n + b.n + 2], ys = new int[a.n + b.n + 2];
+
+		// lower chains run from index 0 up to the rightmost vertex in ascending order,
+		// upper chains from the rightmost vertex round to index 0 in descending order
+		int n = monotone(a, 0, ra, b, 0, rb, true, xs, ys, 0);
+		// the upper pass starts on the rightmost vertex the lower pass ended with,
+		// and ends on the leftmost vertex the lower pass started with
+		n = monotone(a, ra, a.n, b, rb, b.n, false, xs, ys, n - 1);
+		n = Math.max(1, n - 1);
+		return new Hull(xs, ys, n);
+	}
+
+	/**
+	 * Merges two sorted chains, a[fromA..toA] and b[fromB..toB] with indexes
+	 * taken mod n, and writes the monotone chain hull of the merged sequence to
+	 * xs/ys starting at start
+	 * @return the index after the last vertex written
+	 */
+	private static int monotone(Hull a, int fromA, int toA, Hull b, int fromB, int toB, boolean ascending,
+			int[] xs, int[] ys, int start) {
+		int top = start;
+		int i = fromA, j = fromB;
+		while (i <= toA || j <= toB) {
+			boolean takeA;
+			if (i > toA)
+				takeA = false;
+			else if (j > toB)
+				takeA = true;
+			else {
+				int ai = i % a.n, bj = j % b.n;
+				int cmp = a.xs[ai] != b.xs[bj] ? Integer.compare(a.xs[ai], b.xs[bj]) : Integer.compare(a.ys[ai], b.ys[bj]);
+				takeA = ascending ? cmp <= 0 : cmp >= 0;
+			}
+			int x, y;
+			if (takeA) {
+				x = a.xs[i % a.n];
+				y = a.ys[i % a.n];
+				i++;
+			}
+			else {
+				x = b.xs[j % b.n];
+				y = b.ys[j % b.n];
+				j++;
+			}
+			// keep only counter-clockwise turns, which also drops repeated points
+			while (top - start >= 2
+					&& Line.determinant(xs[top - 2], ys[top - 2], xs[top - 1], ys[top - 1], x, y) >= 0)
+				top--;
+			if (top - start == 1 && xs[top - 1] == x && ys[top - 1] == y)
+				continue;
+			xs[top] = x;
+			ys[top] = y;
+			top++;
+		}
+		return top;
+	}
+
+	// puts a closed vertex sequence into Hull form: no repeated points, no
+	// collinear vertices, starting at the lexicographically smallest vertex
+	private static Hull normalize(int[] inXs, int[] inYs, int count) {
+		int[] xs = new int[count], ys = new int[count];
+		int n = 0;
+		for (int i = 0; i < count; i++) {
+			if (!Line.inRange(inXs[i], inYs[i]))
+				throw new IllegalArgumentException("coordinate out of range: (" + inXs[i] + "," + inYs[i] + ")");
+			if (n > 0 && xs[n - 1] == inXs[i] && ys[n - 1] == inYs[i])
+				continue;
+			xs[n] = inXs[i];
+			ys[n] = inYs[i];
+			n++;
+		}
+		while (n > 1 && xs[n - 1] == xs[0] && ys[n - 1] == ys[0])
+			n--;
+
+		int first = 0;
+		for (int i = 1; i < n; i++)
+			if (xs[i] < xs[first] || (xs[i] == xs[first] && ys[i] < ys[first]))
+				first = i;
+
+		// a hull of collinear points is just its two end points, whatever order
+		// the rest of them came in
+		int last = 0;
+		for (int i = 1; i < n; i++)
+			if (xs[i] > xs[last] || (xs[i] == xs[last] && ys[i] > ys[last]))
+				last = i;
+		boolean flat = true;
+		for (int i = 0; i < n && flat; i++)
+			flat = Line.determinant(xs[first], ys[first], xs[last], ys[last], xs[i], ys[i]) == 0;
+		if (flat) {
+			int m = first == last ? 1 : 2;
+			return new Hull(new int[] { xs[first], xs[last] }, new int[] { ys[first], ys[last] }, m);
+		}
+
+		int[] outXs = new int[n], outYs = new int[n];
+		int m = 0;
+		for (int k = 0; k < n; k++) {
+			int i = (first + k) % n, next = (first + k + 1) % n;
+			// the first vertex is extreme, so it is always kept
+			if (k > 0 && n > 2 && Line.determinant(outXs[m - 1], outYs[m - 1], xs[i], ys[i], xs[next], ys[next]) == 0)
+				continue;
+			outXs[m] = xs[i];
+			outYs[m] = ys[i];
+			m++;
+		}
+		return new Hull(outXs, outYs, m);
+	}
+
+	private static Hull toHull(List<Point> vertices) {
+		int[] xs = new int[vertices.size()], ys = new int[vertices.size()];
+		for (int i = 0; i < xs.length; i++) {
+			xs[i] = vertices.get(i).x;
+			ys[i] = vertices.get(i).y;
+		}
+		return normalize(xs, ys, xs.length);
+	}
+
+	private static ArrayList<Point> toPoints(Hull hull) {
+		ArrayList<Point> vertices = new ArrayList<Point>(hull.n);
+		for (int i = 0; i < hull.n; i++)
+			vertices.add(new Point(hull.xs[i], hull.ys[i]));
+		return vertices;
+	}
+}
@@ -0,0 +1,129 @@
+/**
+ * HullProtocol.java
+ *
+ * The compact binary framing used to send point batches and hull vertices
+ * over a socket. All values are big-endian ints:
+ *
+ *   request:  count, then count pairs of x y
+ *   response: count, then count pairs of x y holding the hull in
+ *             counter-clockwise order, or -1 followed by a UTF error message
+ *
+ * A hull starts at its leftmost (then lowest) vertex and has no repeated
+ * points or collinear vertices, however the server computed it.
+ *
+ * A connection may carry any number of request/response pairs; the client
+ * ends the conversation by closing its side of the socket.
+ **/
+
+import java.awt.Point;
+import java.io.*;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class HullProtocol {
+	// the largest batch a peer may send in a single frame
+	public static final int MAX_POINTS = 1 << 26;
+	// the count sent in place of a hull when the request could not be served
+	public static final int ERROR = -1;
+	// frames are read into lists of at most this initial capacity
+	private static final int INITIAL_CAPACITY = 4096;
+
+	private HullProtocol() {
+	}
+
+	/**
+	 * Reads one frame of points. Coordinates are not checked: a point
+	 * outside Line.inRange makes a bad request, not a broken frame, and is
+	 * rejected when the hull is computed
+	 * @param in
+	 * @return the points, or null if the peer closed the connection cleanly
+	 * @throws IOException if the frame is malformed
+	 */
+	public static ArrayList<Point> readPoints(DataInputStream in) throws IOException {
+		int count;
+		try {
+			count = in.readInt();
+		}
+		catch (EOFException e) {
+			return null;
+		}
+		if (count < 0 || count > MAX_POINTS)
+			throw new IOException("bad point count " + count);
+		// the count is only a claim until the points arrive, so the list grows as they do
+		ArrayList<Point> pts = new ArrayList<Point>(Math.min(count, INITIAL_CAPACITY));
+		for (int i = 0; i < count; i++)
+			pts.add(new Point(in.readInt(), in.readInt()));
+		return pts;
+	}
+
+	/**
+	 * Reads one response frame
+	 * @param in
+	 * @return the hull vertices
+	 * @throws IOException if the peer reported an error or closed the connection
+	 */
+	public static ArrayList<Point> readHull(DataInputStream in) throws IOException {
+		int count = in.readInt();
+		if (count == ERROR)
+			throw new IOException("server error: " + in.readUTF());
+		if (count < 0 || count > MAX_POINTS)
+			throw new IOException("bad hull size " + count);
+		ArrayList<Point> hull = new ArrayList<Point>(Math.min(count, INITIAL_CAPACITY));
+		for (int i = 0; i < count; i++)
+			hull.add(new Point(in.readInt(), in.readInt()));
+		return hull;
+	}
+
+	/**
+	 * Writes one frame of points; used for both requests and responses
+	 * @param out
+	 * @param pts
+	 */
+	public static void writePoints(DataOutputStream out, List<Point> pts) throws IOException {
+		out.writeInt(pts.size());
+		for (Point pt : pts) {
+			out.writeInt(pt.x);
+			out.writeInt(pt.y);
+		}
+	}
+
+	/**
+	 * Writes an error response in place of a hull
+	 * @param out
+	 * @param message
+	 */
+	public static void writeError(DataOutputStream out, String message) throws IOException {
+		out.writeInt(ERROR);
+		out.writeUTF(message == null ? "unknown error" : message);
+	}
+
+	/**
+	 * Computes the hull of a batch with PointSet's QuickHull
+	 * @param pts
+	 * @return the hull vertices in counter-clockwise order, normalized as
+	 * HullMerge.normalize does
+	 * @throws IllegalArgumentException if a point is outside Line.inRange
+	 */
+	public static ArrayList<Point> computeHull(List<Point> pts) {
+		PointSet set = new PointSet();
+		set.addPoints(pts);
+		return HullMerge.normalize(set.getQuickHullVertices());
+	}
+
+	/**
+	 * Returns an executor that starts a new thread for every task, using
+	 * virtual threads when the running JDK provides them and platform
+	 * threads otherwise
+	 */
+	public static ExecutorService newThreadPerTaskExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		}
+		catch (ReflectiveOperationException | RuntimeException e) {
+			// older JDK, or virtual threads still behind --enable-preview
+			return Executors.newCachedThreadPool();
+		}
+	}
+}
@@ -0,0 +1,256 @@
+/**
+ * HullServer.java
+ *
+ * A small self-contained server that returns the convex hull of point
+ * batches sent with HullProtocol, computed by PointSet's QuickHull.
+ *
+ * Usage:
+ *   java -Djava.awt.headless=true HullServer [-port p] [-small n] [-batch n] [-linger micros] [-workers n] [-stats seconds]
+ *
+ * Every connection is served by its own thread (a virtual thread on JDKs that
+ * have them). Requests of at most -small points are not computed on the
+ * connection thread; they are queued and coalesced by a few batch workers so
+ * that thousands of tiny requests cost a handful of thread wake-ups rather
+ * than one each, and each batch is computed with one ClusterHulls call.
+ * Larger requests are computed directly.
+ **/
+
+import java.awt.Point;
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class HullServer {
+	// a small request waiting to be computed by a batch worker
+	private static class Pending {
+		final List<Point> points;
+		final CompletableFuture<ArrayList<Point>> hull = new CompletableFuture<ArrayList<Point>>();
+
+		Pending(List<Point> points) {
+			this.points = points;
+		}
+	}
+
+	private int port = 7070;
+	// requests with at most this many points are batched
+	private int smallRequest = 256;
+	// the most requests a worker takes in one batch
+	private int maxBatch = 512;
+	// how long a worker waits for a batch to fill after the first request arrives
+	private long lingerMicros = 0;
+	private int workers = Runtime.getRuntime().availableProcessors();
+	private int statsSeconds = 0;
+
+	private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<Pending>();
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong batchedRequests = new AtomicLong();
+	private final AtomicLong batches = new AtomicLong();
+	private volatile boolean running = true;
+	private ServerSocket serverSocket;
+
+	public static void main(String[] args) throws IOException {
+		System.setProperty("java.awt.headless", "true");
+
+		HullServer server = new HullServer();
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (i + 1 >= args.length)
+				usage("missing value for " + arg);
+			else if (arg.equals("-port"))
+				server.port = Integer.parseInt(args[++i]);
+			else if (arg.equals("-small"))
+				server.smallRequest = Integer.parseInt(args[++i]);
+			else if (arg.equals("-batch"))
+				server.maxBatch = Math.max(1, Integer.parseInt(args[++i]));
+			else if (arg.equals("-linger"))
+				server.lingerMicros = Long.parseLong(args[++i]);
+			else if (arg.equals("-workers"))
+				server.workers = Math.max(1, Integer.parseInt(args[++i]));
+			else if (arg.equals("-stats"))
+				server.statsSeconds = Integer.parseInt(args[++i]);
+			else
+				usage("unknown option " + arg);
+		}
+		server.serve();
+	}
+
+	private static void usage(String message) {
+		System.err.println(message);
+		System.err.println("usage: java -Djava.awt.headless=true HullServer [-port p] [-small n] "
+				+ "[-batch n] [-linger micros] [-workers n] [-stats seconds]");
+		System.exit(2);
+	}
+
+	/**
+	 * Accepts connections until the server socket is closed
+	 */
+	public void serve() throws IOException {
+		serverSocket = new ServerSocket();
+		serverSocket.setReuseAddress(true);
+		serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 4096);
+		System.out.println("HullServer listening on " + serverSocket.getLocalSocketAddress()
+				+ " with " + workers + " batch workers");
+
+		for (int i = 0; i < workers; i++) {
+			Thread worker = new Thread(this::batchLoop, "hull-batch-" + i);
+			worker.setDaemon(true);
+			worker.start();
+		}
+		if (statsSeconds > 0)
+			startStats();
+
+		ExecutorService connections = HullProtocol.newThreadPerTaskExecutor();
+		try {
+			while (running) {
+				final Socket socket;
+				try {
+					socket = serverSocket.accept();
+				}
+				catch (SocketException e) {
+					break;  // closed by shutdown()
+				}
+				connections.execute(() -> serveConnection(socket));
+			}
+		}
+		finally {
+			connections.shutdown();
+		}
+	}
+
+	/**
+	 * Stops accepting connections
+	 */
+	public void shutdown() throws IOException {
+		running = false;
+		if (serverSocket != null)
+			serverSocket.close();
+	}
+
+	// answers requests on one connection until the client closes it
+	private void serveConnection(Socket socket) {
+		try (Socket s = socket) {
+			s.setTcpNoDelay(true);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+			ArrayList<Point> pts;
+			while ((pts = HullProtocol.readPoints(in)) != null) {
+				requests.incrementAndGet();
+				try {
+					HullProtocol.writePoints(out, hull(pts));
+				}
+				catch (RuntimeException e) {
+					HullProtocol.writeError(out, e.toString());
+				}
+				out.flush();
+			}
+		}
+		catch (IOException e) {
+			// the client went away; nothing to answer
+		}
+	}
+
+	// computes small requests through the batch queue and large ones in place
+	private ArrayList<Point> hull(List<Point> pts) {
+		if (pts.size() > smallRequest)
+			return HullProtocol.computeHull(pts);
+
+		// checked here so that a bad request fails alone instead of failing
+		// the ClusterHulls call for its whole batch
+		for (Point pt : pts)
+			if (!Line.inRange(pt.x, pt.y))
+				throw new IllegalArgumentException("coordinate out of range: (" + pt.x + "," + pt.y + ")");
+		Pending pending = new Pending(pts);
+		queue.add(pending);
+		try {
+			return pending.hull.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted waiting for hull");
+		}
+		catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	// takes whatever small requests are queued and computes them together
+	private void batchLoop() {
+		ArrayList<Pending> batch = new ArrayList<Pending>(maxBatch);
+		while (true) {
+			try {
+				batch.add(queue.take());
+				if (lingerMicros > 0 && queue.size() < maxBatch - 1) {
+					Pending next = queue.poll(lingerMicros, TimeUnit.MICROSECONDS);
+					if (next != null)
+						batch.add(next);
+				}
+				queue.drainTo(batch, maxBatch - batch.size());
+			}
+			catch (InterruptedException e) {
+				return;
+			}
+
+			computeBatch(batch);
+			batches.incrementAndGet();
+			batchedRequests.addAndGet(batch.size());
+			batch.clear();
+		}
+	}
+
+	// computes the hulls of a whole batch with one ClusterHulls call; the
+	// requests were range checked before they were queued
+	private void computeBatch(List<Pending> batch) {
+		int[] offsets = new int[batch.size() + 1];
+		for (int r=0; r<batch.size(); r++)
+			offsets[r+1] = offsets[r] + batch.get(r).points.size();
+		int[] xs = new int[offsets[batch.size()]], ys = new int[xs.length];
+		for (int r=0; r<batch.size(); r++) {
+			int i = offsets[r];
+			for (Point pt : batch.get(r).points) {
+				xs[i] = pt.x;
+				ys[i++] = pt.y;
+			}
+		}
+
+		ClusterHulls hulls;
+		try {
+			hulls = ClusterHulls.compute(xs, ys, offsets);
+		}
+		catch (RuntimeException e) {
+			for (Pending pending : batch)
+				pending.hull.completeExceptionally(e);
+			return;
+		}
+		int[] vertices = hulls.getVertices(), hullOffsets = hulls.getOffsets();
+		for (int r=0; r<batch.size(); r++) {
+			ArrayList<Point> hull = new ArrayList<Point>(hullOffsets[r+1] - hullOffsets[r]);
+			for (int v=hullOffsets[r]; v<hullOffsets[r+1]; v++)
+				hull.add(new Point(xs[vertices[v]], ys[vertices[v]]));
+			batch.get(r).hull.complete(hull);
+		}
+	}
+
+	private void startStats() {
+		ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "hull-stats");
+			t.setDaemon(true);
+			return t;
+		});
+		timer.scheduleAtFixedRate(new Runnable() {
+			long lastRequests, lastBatched, lastBatches;
+
+			public void run() {
+				long r = requests.get(), b = batchedRequests.get(), n = batches.get();
+				long batchCount = n - lastBatches;
+				System.out.printf("requests/sec %.0f  batched %d  mean batch %.1f%n",
+						(r - lastRequests) / (double) statsSeconds, b - lastBatched,
+						batchCount == 0 ? 0.0 : (b - lastBatched) / (double) batchCount);
+				lastRequests = r;
+				lastBatched = b;
+				lastBatches = n;
+			}
+		}, statsSeconds, statsSeconds, TimeUnit.SECONDS);
+	}
+}
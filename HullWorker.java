@@ -0,0 +1,56 @@
+/**
+ * HullWorker.java
+ *
+ * A worker process for HullCoordinator. It connects back to the coordinator
+ * on the loopback interface, sends its process id so the coordinator can
+ * tell which process it is talking to, and, for every shard of points it receives,
+ * answers with the shard's hull computed by PointSet's QuickHull, using the
+ * HullProtocol framing. It exits when the coordinator closes the connection.
+ *
+ * Usage:
+ *   java -Djava.awt.headless=true HullWorker port [-failAfter n]
+ *
+ * -failAfter makes the worker exit abruptly on receiving shard n+1, which
+ * is how the coordinator's shard reassignment is exercised.
+ **/
+
+import java.awt.Point;
+import java.io.*;
+import java.net.*;
+import java.util.*;
+
+public class HullWorker {
+	public static void main(String[] args) throws IOException {
+		System.setProperty("java.awt.headless", "true");
+
+		if (args.length != 1 && !(args.length == 3 && args[1].equals("-failAfter"))) {
+			System.err.println("usage: java -Djava.awt.headless=true HullWorker port [-failAfter n]");
+			System.exit(2);
+		}
+		int port = Integer.parseInt(args[0]);
+		int failAfter = args.length == 3 ? Integer.parseInt(args[2]) : -1;
+
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			socket.setTcpNoDelay(true);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			out.writeLong(ProcessHandle.current().pid());
+			out.flush();
+			int shards = 0;
+			ArrayList<Point> shard;
+			while ((shard = HullProtocol.readPoints(in)) != null) {
+				if (shards++ == failAfter) {
+					System.err.println("HullWorker: simulated failure after " + failAfter + " shards");
+					Runtime.getRuntime().halt(1);
+				}
+				try {
+					HullProtocol.writePoints(out, HullProtocol.computeHull(shard));
+				}
+				catch (RuntimeException e) {
+					HullProtocol.writeError(out, e.toString());
+				}
+				out.flush();
+			}
+		}
+	}
+}
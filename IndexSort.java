@@ -0,0 +1,90 @@
+/**
+ * IndexSort.java
+ *
+ * Sorts arrays of point indexes by the coordinates they refer to, in
+ * (x, y) order, without boxing. Used wherever a hull algorithm needs the
+ * points in sorted order but must keep track of which point is which.
+ **/
+
+public class IndexSort {
+	// runs shorter than this are sorted by insertion
+	private static final int INSERTION_THRESHOLD = 16;
+
+	private IndexSort() {
+	}
+
+	/**
+	 * Sorts idx[from, to) by (xs[i], ys[i]); equal points keep their order
+	 * @param idx the indexes to sort
+	 * @param from
+	 * @param to
+	 * @param xs x coordinates, indexed by the values in idx
+	 * @param ys y coordinates, indexed by the values in idx
+	 * @param scratch working space of at least to - from entries
+	 */
+	public static void sortByXY(int[] idx, int from, int to, int[] xs, int[] ys, int[] scratch) {
+		if (to - from < 2)
+			return;
+		// sort short runs in place, then merge runs of doubling width,
+		// alternating between idx and scratch
+		for (int lo = from; lo < to; lo += INSERTION_THRESHOLD)
+			insertionSort(idx, lo, Math.min(lo + INSERTION_THRESHOLD, to), xs, ys);
+
+		int[] src = idx, dst = scratch;
+		int srcOff = from, dstOff = 0;
+		int n = to - from;
+		for (int width = INSERTION_THRESHOLD; width < n; width *= 2) {
+			for (int lo = 0; lo < n; lo += 2 * width) {
+				int mid = Math.min(lo + width, n), hi = Math.min(lo + 2 * width, n);
+				int i = lo, j = mid, k = lo;
+				while (i < mid && j < hi) {
+					int a = src[srcOff + i], b = src[srcOff + j];
+					if (compare(b, a, xs, ys) < 0) {
+						dst[dstOff + k++] = b;
+						j++;
+					}
+					else {
+						dst[dstOff + k++] = a;
+						i++;
+					}
+				}
+				while (i < mid)
+					dst[dstOff + k++] = src[srcOff + i++];
+				while (j < hi)
+					dst[dstOff + k++] = src[srcOff + j++];
+			}
+			int[] t = src;
+			src = dst;
+			dst = t;
+			int o = srcOff;
+			srcOff = dstOff;
+			dstOff = o;
+		}
+		if (src != idx)
+			System.arraycopy(src, srcOff, idx, from, n);
+	}
+
+	/**
+	 * Sorts idx[from, to) by (xs[i], ys[i]) by insertion, which is fastest for a few dozen points
+	 */
+	public static void insertionSort(int[] idx, int from, int to, int[] xs, int[] ys) {
+		for (int i = from + 1; i < to; i++) {
+			int v = idx[i];
+			int j = i - 1;
+			while (j >= from && compare(v, idx[j], xs, ys) < 0) {
+				idx[j + 1] = idx[j];
+				j--;
+			}
+			idx[j + 1] = v;
+		}
+	}
+
+	/**
+	 * Compares the points at indexes a and b by x, then by y
+	 */
+	public static int compare(int a, int b, int[] xs, int[] ys) {
+		if (xs[a] != xs[b])
+			return xs[a] < xs[b] ? -1 : 1;
+		return ys[a] < ys[b] ? -1 : (ys[a] == ys[b] ? 0 : 1);
+	}
+}
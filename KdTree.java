@@ -0,0 +1,263 @@
+/**
+ * KdTree.java
+ *
+ * A 2-d tree over primitive point coordinates, used by PointSet for
+ * nearest-neighbour and rectangle queries when the points are too clustered
+ * for a uniform PointGrid. Points are identified by their index in the
+ * coordinate arrays the tree was built from.
+ *
+ * The tree is stored implicitly: every range [lo,hi) of the permutation
+ * array is a node whose splitting point sits at its middle, with the left
+ * subtree in [lo,mid) and the right subtree in [mid+1,hi). Large subtrees
+ * are built in parallel on the common fork/join pool.
+ *
+ * Points added after the tree was built are kept as an unindexed tail
+ * that queries scan linearly. The tree is rebuilt over every point once
+ * the tail grows past about the square root of the tree's size, so the
+ * cost of rebuilding is spread over many additions instead of being paid
+ * by the next query after each one.
+ **/
+
+import java.util.*;
+import java.util.concurrent.*;
+
+public class KdTree {
+	// subtrees smaller than this are built on the current thread
+	private static final int PARALLEL_THRESHOLD = 1 << 14;
+	// the tail is always allowed at least this many points before a rebuild
+	private static final int MIN_TAIL = 256;
+
+	private int[] xs, ys;
+	// number of points, in the tree and in the tail after it
+	private int n;
+	// indexes of the points in the tree, in tree order; the tail is [perm.length, n)
+	private int[] perm;
+	// splitting axis of the node whose median is stored at each position: 0 for x, 1 for y
+	private byte[] axis;
+
+	/**
+	 * Builds the tree over the first n coordinates of xs and ys; the
+	 * arrays are not copied, and those coordinates must not change while
+	 * the tree is in use
+	 * @param xs
+	 * @param ys
+	 * @param n
+	 */
+	public KdTree(int[] xs, int[] ys, int n) {
+		this.xs = xs;
+		this.ys = ys;
+		this.n = n;
+		rebuild();
+	}
+
+	/**
+	 * Takes in the points added since the tree was built or last updated:
+	 * the first n coordinates of xs and ys, which must begin with the
+	 * points already in the tree. The new points join the tail, and the
+	 * tree is rebuilt only if the tail has grown too long
+	 * @param xs
+	 * @param ys
+	 * @param n
+	 */
+	public void update(int[] xs, int[] ys, int n) {
+		this.xs = xs;
+		this.ys = ys;
+		this.n = n;
+		if (n - perm.length > Math.max(MIN_TAIL, (int) Math.sqrt(perm.length)))
+			rebuild();
+	}
+
+	/** returns the number of points in the tree, including the tail */
+	public int size() {
+		return n;
+	}
+
+	// builds the tree over all n points, emptying the tail
+	private void rebuild() {
+		perm = new int[n];
+		axis = new byte[n];
+		for (int i = 0; i < n; i++)
+			perm[i] = i;
+		if (n >= PARALLEL_THRESHOLD)
+			ForkJoinPool.commonPool().invoke(new Build(0, n));
+		else
+			build(0, n);
+	}
+
+	// builds the subtree over perm[lo,hi) on the current thread
+	private void build(int lo, int hi) {
+		while (hi - lo > 1) {
+			int mid = split(lo, hi);
+			build(lo, mid);
+			lo = mid + 1;
+		}
+	}
+
+	// splits perm[lo,hi) around its median along the wider axis and returns the median position
+	private int split(int lo, int hi) {
+		int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE;
+		int minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+		for (int i = lo; i < hi; i++) {
+			int p = perm[i];
+			minX = Math.min(minX, xs[p]);
+			maxX = Math.max(maxX, xs[p]);
+			minY = Math.min(minY, ys[p]);
+			maxY = Math.max(maxY, ys[p]);
+		}
+		int[] key = (long) maxX - minX >= (long) maxY - minY ? xs : ys;
+		int mid = (lo + hi) >>> 1;
+		select(key, lo, hi - 1, mid);
+		axis[mid] = (byte) (key == xs ? 0 : 1);
+		return mid;
+	}
+
+	// quickselect: reorders perm[lo..hi] so perm[k] has the k-th smallest key,
+	// with no larger keys before it and no smaller keys after it
+	private void select(int[] key, int lo, int hi, int k) {
+		while (hi > lo) {
+			int pivot = key[perm[(lo + hi) >>> 1]];
+			int i = lo, j = hi;
+			while (i <= j) {
+				while (key[perm[i]] < pivot)
+					i++;
+				while (key[perm[j]] > pivot)
+					j--;
+				if (i <= j) {
+					int t = perm[i];
+					perm[i] = perm[j];
+					perm[j] = t;
+					i++;
+					j--;
+				}
+			}
+			if (k <= j)
+				hi = j;
+			else if (k >= i)
+				lo = i;
+			else
+				return;
+		}
+	}
+
+	// builds large subtrees in parallel
+	private class Build extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int lo, hi;
+
+		Build(int lo, int hi) {
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected void compute() {
+			if (hi - lo < PARALLEL_THRESHOLD) {
+				build(lo, hi);
+				return;
+			}
+			int mid = split(lo, hi);
+			invokeAll(new Build(lo, mid), new Build(mid + 1, hi));
+		}
+	}
+
+	private long distanceSquared(int p, long x, long y) {
+		long dx = xs[p] - x, dy = ys[p] - y;
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * Returns the index of the point closest to (x,y), or -1 if the tree is empty
+	 * @param x
+	 * @param y
+	 */
+	public int nearest(int x, int y) {
+		int[] best = kNearest(x, y, 1);
+		return best.length == 0 ? -1 : best[0];
+	}
+
+	/**
+	 * Returns the indexes of the k points closest to (x,y), nearest first
+	 * @param x
+	 * @param y
+	 * @param k
+	 */
+	public int[] kNearest(int x, int y, int k) {
+		k = Math.min(k, n);
+		if (k <= 0)
+			return new int[0];
+		PointGrid.NearestQueue found = new PointGrid.NearestQueue(k);
+		// the tail first, so the tree search starts with a tighter bound
+		for (int p = perm.length; p < n; p++)
+			found.offer(p, distanceSquared(p, x, y));
+		kNearest(0, perm.length, x, y, found);
+		return found.toSortedArray();
+	}
+
+	private void kNearest(int lo, int hi, int x, int y, PointGrid.NearestQueue found) {
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			int p = perm[mid];
+			found.offer(p, distanceSquared(p, x, y));
+
+			long diff = axis[mid] == 0 ? (long) x - xs[p] : (long) y - ys[p];
+			// visit the side holding the query first, and the other side only if
+			// the splitting line is closer than the k-th best found so far
+			int nearLo = diff < 0 ? lo : mid + 1, nearHi = diff < 0 ? mid : hi;
+			int farLo = diff < 0 ? mid + 1 : lo, farHi = diff < 0 ? hi : mid;
+			kNearest(nearLo, nearHi, x, y, found);
+			if (diff * diff >= found.worstDistance())
+				return;
+			lo = farLo;
+			hi = farHi;
+		}
+	}
+
+	/**
+	 * Returns the indexes of all the points with x in [x, x+width) and y in [y, y+height)
+	 * @param x
+	 * @param y
+	 * @param width
+	 * @param height
+	 */
+	public int[] pointsInRect(int x, int y, int width, int height) {
+		if (width <= 0 || height <= 0)
+			return new int[0];
+		int[][] result = { new int[16] };
+		long x2 = (long) x + width, y2 = (long) y + height;
+		int size = pointsInRect(0, perm.length, x, y, x2, y2, result, 0);
+		for (int p = perm.length; p < n; p++) {
+			if (xs[p] >= x && xs[p] < x2 && ys[p] >= y && ys[p] < y2) {
+				if (size == result[0].length)
+					result[0] = Arrays.copyOf(result[0], size * 2);
+				result[0][size++] = p;
+			}
+		}
+		return Arrays.copyOf(result[0], size);
+	}
+
+	// appends matches in perm[lo,hi) to result[0] starting at size and returns the new size
+	private int pointsInRect(int lo, int hi, long x1, long y1, long x2, long y2, int[][] result, int size) {
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			int p = perm[mid];
+			if (xs[p] >= x1 && xs[p] < x2 && ys[p] >= y1 && ys[p] < y2) {
+				if (size == result[0].length)
+					result[0] = Arrays.copyOf(result[0], size * 2);
+				result[0][size++] = p;
+			}
+			long split = axis[mid] == 0 ? xs[p] : ys[p];
+			long low = axis[mid] == 0 ? x1 : y1, high = axis[mid] == 0 ? x2 : y2;
+			// the left subtree holds keys <= split and the right subtree keys >= split
+			if (low <= split && split < high) {
+				size = pointsInRect(lo, mid, x1, y1, x2, y2, result, size);
+				lo = mid + 1;
+			}
+			else if (split < low) {
+				lo = mid + 1;
+			}
+			else {
+				hi = mid;
+			}
+		}
+		return size;
+	}
+}
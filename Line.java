@@ -10,28 +10,26 @@
 import java.awt.Point;
 
 public class Line {
+	/**
+	 * determinant is exact only for coordinates within this many units of
+	 * zero: differences then fit in 31 bits and their products in a long
+	 */
+	public static final int MAX_COORDINATE = (1 << 30) - 1;
+
 	private Point point1, point2;
 	private double a, b, c;  // line equation: ax + by = c
-	private int x1y2, x2y1;
 	
 	public Line(Point first, Point second){
 		point1 = new Point(first);
 		point2 = new Point(second);
 		initLineEquation();
-		initDeterminant();
 	}
 	
 	// from page 113 of your textbook
 	private void initLineEquation(){
 			a = point2.y-point1.y;
 			b = point1.x-point2.x;
-			c = point1.x*point2.y - point1.y*point2.x;	
-	}
-	
-	// from page 197 of your textbook
-	private void initDeterminant() {
-		x1y2 = point1.x*point2.y;
-		x2y1 = point2.x*point1.y;
+			c = (double) point1.x*point2.y - (double) point1.y*point2.x;	
 	}
 	
 	public Point getFirstPoint() {
@@ -114,14 +112,30 @@ public class Line {
 	 * @return the signed magnitude of the determinant 
 	 */
 	public double getDeterminant(Point other) {
-		// equation is from page 153 of your textbook
-		int x3y1 = other.x*point1.y;
-		int x2y3 = point2.x*other.y;
-		int x3y2 = other.x*point2.y;
-		int x1y3 = point1.x*other.y;
-		
-		// have to reverse the determinant because Java using a downwards y axis.
-		return -(x1y2+x3y1+x2y3-x3y2-x2y1-x1y3);
+		// equation is from page 153 of your textbook, reversed because Java uses
+		// a downwards y axis; products of int coordinates overflow an int, so
+		// it is computed in long arithmetic
+		return determinant(point1.x, point1.y, point2.x, point2.y, other.x, other.y);
+	}
+	
+	/**
+	 * Returns the same signed value as getDeterminant for the line from
+	 * (x1,y1) to (x2,y2) and the point (x3,y3), computed on primitive
+	 * coordinates in long arithmetic. It is exact while every coordinate
+	 * passes inRange, and may overflow outside it.
+	 * A positive result means the line is below the point.
+	 */
+	public static long determinant(int x1, int y1, int x2, int y2, int x3, int y3) {
+		return ((long) y2 - y1) * ((long) x3 - x1) - ((long) x2 - x1) * ((long) y3 - y1);
+	}
+	
+	/**
+	 * Returns true if both coordinates are within MAX_COORDINATE of zero;
+	 * points outside this range are rejected wherever points are accepted
+	 */
+	public static boolean inRange(int x, int y) {
+		return -MAX_COORDINATE <= x && x <= MAX_COORDINATE
+				&& -MAX_COORDINATE <= y && y <= MAX_COORDINATE;
 	}
 	
 	/**
@@ -0,0 +1,393 @@
+/**
+ * OffHeapPointSet.java
+ *
+ * A point collection for very large inputs that keeps its coordinates
+ * outside the Java heap, so hundreds of millions of points add nothing to
+ * heap size or garbage collection pauses. Coordinates live in direct
+ * buffers of CHUNK_POINTS points each (the first one starts small and
+ * grows to that size), and the quick hull partitions and
+ * farthest-point scans read and swap them in place.
+ *
+ * Unlike PointSet this class keeps duplicate points, and computing the hull
+ * reorders the stored points. Memory is released explicitly by clear() or
+ * close(); the total is limited by -XX:MaxDirectMemorySize, not -Xmx.
+ * Instances are not thread safe.
+ **/
+
+import java.awt.Point;
+import java.awt.Polygon;
+import java.lang.reflect.*;
+import java.nio.*;
+import java.util.*;
+
+public class OffHeapPointSet implements AutoCloseable {
+	// each chunk holds 2^CHUNK_SHIFT points as interleaved x,y ints
+	private static final int CHUNK_SHIFT = 24;
+	public static final int CHUNK_POINTS = 1 << CHUNK_SHIFT;
+	private static final long CHUNK_MASK = CHUNK_POINTS - 1;
+	// the capacity of the first chunk when it is first allocated
+	private static final int FIRST_CHUNK_POINTS = 1 << 12;
+
+	// frees a direct buffer immediately; null when the JDK does not allow it
+	private static final Method INVOKE_CLEANER;
+	private static final Object UNSAFE;
+
+	static {
+		Method invokeCleaner = null;
+		Object unsafe = null;
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			unsafe = theUnsafe.get(null);
+			invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+		}
+		catch (ReflectiveOperationException | RuntimeException e) {
+			// fall back to letting the garbage collector release dropped buffers
+			unsafe = null;
+			invokeCleaner = null;
+		}
+		UNSAFE = unsafe;
+		INVOKE_CLEANER = invokeCleaner;
+	}
+
+	private ByteBuffer[] buffers = new ByteBuffer[0];
+	private IntBuffer[] chunks = new IntBuffer[0];
+	private long size = 0;
+	private long capacity = 0;
+	private boolean closed = false;
+
+	// the hull of the current points, valid while hullCalculated is true
+	private Polygon quickHull = new Polygon();
+	private boolean hullCalculated = true;
+
+	/**
+	 * Adds a single point to the collection
+	 * @param x
+	 * @param y
+	 * @throws IllegalArgumentException if the point is outside Line.inRange
+	 */
+	public void addPoint(int x, int y) {
+		ensureOpen();
+		if (!Line.inRange(x, y))
+			throw new IllegalArgumentException("coordinate out of range: (" + x + "," + y + ")");
+		if (size == capacity)
+			grow();
+		IntBuffer chunk = chunks[(int) (size >>> CHUNK_SHIFT)];
+		int offset = (int) (size & CHUNK_MASK) << 1;
+		chunk.put(offset, x);
+		chunk.put(offset + 1, y);
+		size++;
+		hullCalculated = false;
+	}
+
+	/**
+	 * Adds a single point to the collection
+	 * @param point
+	 */
+	public void addPoint(Point point) {
+		addPoint(point.x, point.y);
+	}
+
+	// the first chunk starts small and doubles until it reaches CHUNK_POINTS,
+	// after which whole chunks are added
+	private void grow() {
+		if (capacity < CHUNK_POINTS) {
+			int points = capacity == 0 ? FIRST_CHUNK_POINTS : (int) capacity * 2;
+			ByteBuffer buffer = allocate(points);
+			if (capacity > 0) {
+				ByteBuffer old = buffers[0];
+				old.clear();
+				buffer.put(old);
+				buffer.clear();
+				free(old);
+			}
+			buffers = new ByteBuffer[] { buffer };
+			chunks = new IntBuffer[] { buffer.asIntBuffer() };
+			capacity = points;
+		}
+		else {
+			ByteBuffer buffer = allocate(CHUNK_POINTS);
+			buffers = Arrays.copyOf(buffers, buffers.length + 1);
+			chunks = Arrays.copyOf(chunks, chunks.length + 1);
+			buffers[buffers.length - 1] = buffer;
+			chunks[chunks.length - 1] = buffer.asIntBuffer();
+			capacity += CHUNK_POINTS;
+		}
+	}
+
+	private static ByteBuffer allocate(int points) {
+		return ByteBuffer.allocateDirect(points * 8).order(ByteOrder.nativeOrder());
+	}
+
+	/** returns the number of points in the current collection */
+	public long getNumber() {
+		return size;
+	}
+
+	/** returns the x coordinate of the indexed point */
+	public int getX(long i) {
+		checkIndex(i);
+		return x(i);
+	}
+
+	/** returns the y coordinate of the indexed point */
+	public int getY(long i) {
+		checkIndex(i);
+		return y(i);
+	}
+
+	/** returns a specific point from the collection
+	 *
+	 * @param i: a number between 0 and the number of points
+	 * @return the Point indexed
+	 */
+	public Point getPoint(long i) {
+		checkIndex(i);
+		return new Point(x(i), y(i));
+	}
+
+	private void checkIndex(long i) {
+		ensureOpen();
+		if (i < 0 || i >= size)
+			throw new NoSuchElementException();
+	}
+
+	private void ensureOpen() {
+		if (closed)
+			throw new IllegalStateException("point set is closed");
+	}
+
+	private int x(long i) {
+		return chunks[(int) (i >>> CHUNK_SHIFT)].get((int) (i & CHUNK_MASK) << 1);
+	}
+
+	private int y(long i) {
+		return chunks[(int) (i >>> CHUNK_SHIFT)].get(((int) (i & CHUNK_MASK) << 1) + 1);
+	}
+
+	private void swap(long i, long j) {
+		if (i == j)
+			return;
+		IntBuffer a = chunks[(int) (i >>> CHUNK_SHIFT)], b = chunks[(int) (j >>> CHUNK_SHIFT)];
+		int ai = (int) (i & CHUNK_MASK) << 1, bj = (int) (j & CHUNK_MASK) << 1;
+		int x = a.get(ai), y = a.get(ai + 1);
+		a.put(ai, b.get(bj));
+		a.put(ai + 1, b.get(bj + 1));
+		b.put(bj, x);
+		b.put(bj + 1, y);
+	}
+
+	/**
+	 * removes all the points from the collection and releases their memory;
+	 * the collection can be used again afterwards
+	 */
+	public void clear() {
+		ensureOpen();
+		release();
+		quickHull.reset();
+		hullCalculated = true;  // convex hull is currently empty
+	}
+
+	/**
+	 * releases the memory holding the points; the collection cannot be used again
+	 */
+	public void close() {
+		if (!closed) {
+			release();
+			quickHull.reset();
+			closed = true;
+		}
+	}
+
+	private void release() {
+		ByteBuffer[] old = buffers;
+		buffers = new ByteBuffer[0];
+		chunks = new IntBuffer[0];
+		size = 0;
+		capacity = 0;
+		for (ByteBuffer buffer : old)
+			free(buffer);
+	}
+
+	// releases a direct buffer now if the JDK allows it, otherwise when it is collected
+	private static void free(ByteBuffer buffer) {
+		if (INVOKE_CLEANER != null) {
+			try {
+				INVOKE_CLEANER.invoke(UNSAFE, buffer);
+			}
+			catch (ReflectiveOperationException e) {
+				// the buffer is released when it is collected instead
+			}
+		}
+	}
+
+	/**
+	 * returns the convex hull for the current set of points; computing it
+	 * reorders the points in the collection
+	 */
+	public Polygon getQuickHull() {
+		ensureOpen();
+		if (!hullCalculated) {
+			hullCalculated = true;
+			calculateQuickHull();
+		}
+		return quickHull;
+	}
+
+	/**
+	 * returns the vertices of the convex hull in counter-clockwise order,
+	 * starting with the leftmost point
+	 */
+	public ArrayList<Point> getQuickHullVertices() {
+		Polygon polygon = getQuickHull();
+		ArrayList<Point> vertices = new ArrayList<Point>(polygon.npoints);
+		for (int i=0; i<polygon.npoints; i++)
+			vertices.add(new Point(polygon.xpoints[i], polygon.ypoints[i]));
+		return vertices;
+	}
+
+	// in-place quick hull: the points strictly above each line are gathered into
+	// a contiguous range of the chunks, and everything inside the hull is dropped
+	// by leaving it behind the ranges still being processed
+	private void calculateQuickHull() {
+		quickHull.reset();
+		if (size == 0)
+			return;
+
+		// find left most point and right most point, breaking ties by y
+		long left = 0, right = 0;
+		for (long i = 1; i < size; i++) {
+			int x = x(i), y = y(i);
+			if (x < x(left) || (x == x(left) && y < y(left)))
+				left = i;
+			if (x > x(right) || (x == x(right) && y > y(right)))
+				right = i;
+		}
+		swap(0, left);
+		if (right == 0)
+			right = left;
+		swap(size - 1, right);
+
+		int lx = x(0), ly = y(0), rx = x(size - 1), ry = y(size - 1);
+		quickHull.addPoint(lx, ly);
+		if (lx == rx && ly == ry)
+			return;
+
+		// three-way partition of the rest: above the middle line, below it, and on it
+		long above = 1, below = 1, onLine = size - 1;
+		while (below < onLine) {
+			long d = Line.determinant(lx, ly, rx, ry, x(below), y(below));
+			if (d > 0)
+				swap(above++, below++);
+			else if (d < 0)
+				below++;
+			else
+				swap(below, --onLine);
+		}
+
+		// the lower points are those below the middle line, which is to say
+		// above the reversed line
+		HullStack stack = new HullStack();
+		stack.pushRange(rx, ry, lx, ly, above, below);
+		stack.pushVertex(rx, ry);
+		stack.pushRange(lx, ly, rx, ry, 1, above);
+		while (!stack.isEmpty()) {
+			if (stack.popIsVertex()) {
+				quickHull.addPoint(stack.ax, stack.ay);
+				continue;
+			}
+			int ax = stack.ax, ay = stack.ay, bx = stack.bx, by = stack.by;
+			long lo = stack.lo, hi = stack.hi;
+			if (lo >= hi)
+				continue;
+
+			// find the point farthest from the line (Pmax) and move it to the front;
+			// among equally far points take the one nearest a, otherwise a point
+			// between two of them would be kept as a collinear hull vertex
+			long dx = (long) bx - ax, dy = (long) by - ay;
+			long maxPoint = lo;
+			long maxArea = Line.determinant(ax, ay, bx, by, x(lo), y(lo));
+			long maxAlong = dx * ((long) x(lo) - ax) + dy * ((long) y(lo) - ay);
+			for (long i = lo + 1; i < hi; i++) {
+				long area = Line.determinant(ax, ay, bx, by, x(i), y(i));
+				if (area < maxArea)
+					continue;
+				long along = dx * ((long) x(i) - ax) + dy * ((long) y(i) - ay);
+				if (area > maxArea || along < maxAlong) {
+					maxArea = area;
+					maxAlong = along;
+					maxPoint = i;
+				}
+			}
+			swap(lo, maxPoint);
+			int mx = x(lo), my = y(lo);
+
+			// gather the points above a-Pmax, then those above Pmax-b; the rest are inside
+			long end1 = lo + 1;
+			for (long i = lo + 1; i < hi; i++)
+				if (Line.determinant(ax, ay, mx, my, x(i), y(i)) > 0)
+					swap(end1++, i);
+			long end2 = end1;
+			for (long i = end1; i < hi; i++)
+				if (Line.determinant(mx, my, bx, by, x(i), y(i)) > 0)
+					swap(end2++, i);
+
+			stack.pushRange(mx, my, bx, by, end1, end2);
+			stack.pushVertex(mx, my);
+			stack.pushRange(ax, ay, mx, my, lo + 1, end1);
+		}
+	}
+
+	// explicit work stack for calculateQuickHull, so that hulls with many
+	// vertices cannot overflow the call stack
+	private static class HullStack {
+		private int[] coords = new int[64 * 4];
+		private long[] ranges = new long[64 * 2];
+		private boolean[] vertex = new boolean[64];
+		private int top = 0;
+		// the entry most recently popped
+		int ax, ay, bx, by;
+		long lo, hi;
+
+		boolean isEmpty() {
+			return top == 0;
+		}
+
+		void pushVertex(int x, int y) {
+			push(true, x, y, 0, 0, 0, 0);
+		}
+
+		void pushRange(int ax, int ay, int bx, int by, long lo, long hi) {
+			push(false, ax, ay, bx, by, lo, hi);
+		}
+
+		private void push(boolean isVertex, int ax, int ay, int bx, int by, long lo, long hi) {
+			if (top == vertex.length) {
+				coords = Arrays.copyOf(coords, coords.length * 2);
+				ranges = Arrays.copyOf(ranges, ranges.length * 2);
+				vertex = Arrays.copyOf(vertex, vertex.length * 2);
+			}
+			vertex[top] = isVertex;
+			coords[4 * top] = ax;
+			coords[4 * top + 1] = ay;
+			coords[4 * top + 2] = bx;
+			coords[4 * top + 3] = by;
+			ranges[2 * top] = lo;
+			ranges[2 * top + 1] = hi;
+			top++;
+		}
+
+		// pops the top entry into the fields and returns whether it is a vertex
+		boolean popIsVertex() {
+			top--;
+			ax = coords[4 * top];
+			ay = coords[4 * top + 1];
+			bx = coords[4 * top + 2];
+			by = coords[4 * top + 3];
+			lo = ranges[2 * top];
+			hi = ranges[2 * top + 1];
+			return vertex[top];
+		}
+	}
+}
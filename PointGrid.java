@@ -0,0 +1,350 @@
+/**
+ * PointGrid.java
+ *
+ * A uniform bucket grid over a growing set of integer points, used by
+ * PointSet to answer nearest-neighbour and rectangle queries. Points are
+ * identified by the order in which they were added, which matches their
+ * index in PointSet.
+ *
+ * Inserting is O(1) amortized; the grid is rebuilt with finer cells or
+ * wider bounds whenever the points outgrow it. Queries look only at the
+ * cells near the query, which is close to constant time while the points
+ * are spread evenly. When many points pile into a single cell the grid
+ * reports itself as skewed and PointSet answers from a KdTree instead.
+ **/
+
+import java.util.*;
+
+public class PointGrid {
+	// a cell holding more than this many points makes the grid skewed
+	public static final int MAX_BUCKET = 64;
+	// the grid is rebuilt with finer cells once the average cell holds this many points
+	private static final int MAX_AVERAGE = 4;
+
+	// coordinates of every point, by insertion order
+	private int[] xs, ys;
+	private int n;
+
+	// grid geometry: cell (col,row) covers [minX+col*cell, minX+(col+1)*cell)
+	private long minX, minY;
+	private long cell;
+	private int cols, rows;
+	// first point in each cell and the next point in the same cell, or -1
+	private int[] head;
+	private int[] next;
+	// number of points in each cell and the fullest cell
+	private int[] count;
+	private int maxBucket;
+
+	public PointGrid() {
+		xs = new int[16];
+		ys = new int[16];
+		next = new int[16];
+		clear();
+	}
+
+	/**
+	 * removes all the points from the grid
+	 */
+	public void clear() {
+		n = 0;
+		cols = rows = 0;
+		head = null;
+		count = null;
+		maxBucket = 0;
+	}
+
+	/** returns the number of points in the grid */
+	public int size() {
+		return n;
+	}
+
+	/** returns the x coordinate of the indexed point */
+	public int getX(int i) {
+		return xs[i];
+	}
+
+	/** returns the y coordinate of the indexed point */
+	public int getY(int i) {
+		return ys[i];
+	}
+
+	// the backing coordinate arrays, for building a KdTree over the same indexes
+	int[] xCoordinates() {
+		return xs;
+	}
+
+	int[] yCoordinates() {
+		return ys;
+	}
+
+	/**
+	 * returns true when some cell holds so many points that scanning
+	 * it is no longer cheap
+	 */
+	public boolean isSkewed() {
+		return maxBucket > MAX_BUCKET;
+	}
+
+	/**
+	 * Adds a point; its index is the number of points added before it
+	 * @param x
+	 * @param y
+	 */
+	public void add(int x, int y) {
+		if (n == xs.length) {
+			int capacity = xs.length * 2;
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+			next = Arrays.copyOf(next, capacity);
+		}
+		xs[n] = x;
+		ys[n] = y;
+		n++;
+
+		if (head == null || !inBounds(x, y) || n > (long) cols * rows * MAX_AVERAGE)
+			rebuild();
+		else
+			link(n - 1);
+	}
+
+	/**
+	 * Adds many points. Like add, they are linked into the current grid,
+	 * which is rebuilt once at the end only if some point falls outside it
+	 * or it has become too crowded
+	 * @param newXs
+	 * @param newYs
+	 * @param length the number of coordinates to take from each array
+	 */
+	public void addAll(int[] newXs, int[] newYs, int length) {
+		if (n + length > xs.length) {
+			int capacity = Math.max(xs.length * 2, n + length);
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+			next = Arrays.copyOf(next, capacity);
+		}
+		System.arraycopy(newXs, 0, xs, n, length);
+		System.arraycopy(newYs, 0, ys, n, length);
+		int first = n;
+		n += length;
+
+		boolean fits = head != null && n <= (long) cols * rows * MAX_AVERAGE;
+		for (int i = first; i < n && fits; i++)
+			fits = inBounds(xs[i], ys[i]);
+		if (!fits) {
+			rebuild();
+			return;
+		}
+		for (int i = first; i < n; i++)
+			link(i);
+	}
+
+	private boolean inBounds(int x, int y) {
+		return x >= minX && y >= minY && x < minX + cols * cell && y < minY + rows * cell;
+	}
+
+	// picks bounds and a cell size for the current points, with room to grow, and relinks them
+	private void rebuild() {
+		long loX = Long.MAX_VALUE, loY = Long.MAX_VALUE, hiX = Long.MIN_VALUE, hiY = Long.MIN_VALUE;
+		for (int i = 0; i < n; i++) {
+			loX = Math.min(loX, xs[i]);
+			hiX = Math.max(hiX, xs[i]);
+			loY = Math.min(loY, ys[i]);
+			hiY = Math.max(hiY, ys[i]);
+		}
+		// pad the bounds by half their extent so a few stray points don't force a rebuild
+		long width = hiX - loX + 1, height = hiY - loY + 1;
+		minX = loX - width / 4;
+		minY = loY - height / 4;
+		width += width / 2;
+		height += height / 2;
+
+		// square cells sized so the padded box holds about one cell per point
+		long cells = Math.max(1, Math.min(1 << 24, n));
+		cell = Math.max(1, (long) Math.ceil(Math.sqrt((double) width * height / cells)));
+		cols = (int) Math.max(1, Math.min(1 << 24, (width + cell - 1) / cell));
+		rows = (int) Math.max(1, Math.min((1 << 24) / cols, (height + cell - 1) / cell));
+		// clamping the grid dimensions may leave it short of the bounding box
+		cell = Math.max(cell, Math.max((width + cols - 1) / cols, (height + rows - 1) / rows));
+
+		head = new int[cols * rows];
+		count = new int[cols * rows];
+		Arrays.fill(head, -1);
+		maxBucket = 0;
+		for (int i = 0; i < n; i++)
+			link(i);
+	}
+
+	private void link(int i) {
+		int c = cellOf(xs[i], ys[i]);
+		next[i] = head[c];
+		head[c] = i;
+		count[c]++;
+		maxBucket = Math.max(maxBucket, count[c]);
+	}
+
+	private int cellOf(int x, int y) {
+		return row(y) * cols + col(x);
+	}
+
+	// column of an x coordinate, clamped to the grid
+	private int col(long x) {
+		return (int) Math.max(0, Math.min(cols - 1, Math.floorDiv(x - minX, cell)));
+	}
+
+	private int row(long y) {
+		return (int) Math.max(0, Math.min(rows - 1, Math.floorDiv(y - minY, cell)));
+	}
+
+	private long distanceSquared(int i, long x, long y) {
+		long dx = xs[i] - x, dy = ys[i] - y;
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * Returns the index of the point closest to (x,y), or -1 if the grid is empty
+	 * @param x
+	 * @param y
+	 */
+	public int nearest(int x, int y) {
+		int[] best = kNearest(x, y, 1);
+		return best.length == 0 ? -1 : best[0];
+	}
+
+	/**
+	 * Returns the indexes of the k points closest to (x,y), nearest first
+	 * @param x
+	 * @param y
+	 * @param k
+	 */
+	public int[] kNearest(int x, int y, int k) {
+		k = Math.min(k, n);
+		if (k <= 0)
+			return new int[0];
+
+		NearestQueue found = new NearestQueue(k);
+		int c0 = col(x), r0 = row(y);
+		int maxRing = Math.max(Math.max(c0, cols - 1 - c0), Math.max(r0, rows - 1 - r0));
+		// search square rings of cells around the query; every point beyond ring r
+		// is at least r cells away, so stop once the k-th best is closer than that
+		for (int r = 0; r <= maxRing; r++) {
+			for (int row = r0 - r; row <= r0 + r; row++) {
+				if (row < 0 || row >= rows)
+					continue;
+				boolean edgeRow = row == r0 - r || row == r0 + r;
+				int step = edgeRow ? 1 : 2 * r;
+				for (int col = c0 - r; col <= c0 + r; col += Math.max(1, step)) {
+					if (col < 0 || col >= cols)
+						continue;
+					for (int i = head[row * cols + col]; i != -1; i = next[i])
+						found.offer(i, distanceSquared(i, x, y));
+				}
+			}
+			long reach = r * cell;
+			if (found.isFull() && found.worstDistance() <= reach * reach)
+				break;
+		}
+		return found.toSortedArray();
+	}
+
+	/**
+	 * Returns the indexes of all the points with x in [x, x+width) and y in [y, y+height)
+	 * @param x
+	 * @param y
+	 * @param width
+	 * @param height
+	 */
+	public int[] pointsInRect(int x, int y, int width, int height) {
+		if (n == 0 || width <= 0 || height <= 0)
+			return new int[0];
+		long x2 = (long) x + width, y2 = (long) y + height;
+		int[] result = new int[16];
+		int size = 0;
+		for (int row = row(y); row <= row(y2 - 1); row++) {
+			for (int col = col(x); col <= col(x2 - 1); col++) {
+				for (int i = head[row * cols + col]; i != -1; i = next[i]) {
+					if (xs[i] >= x && xs[i] < x2 && ys[i] >= y && ys[i] < y2) {
+						if (size == result.length)
+							result = Arrays.copyOf(result, size * 2);
+						result[size++] = i;
+					}
+				}
+			}
+		}
+		return Arrays.copyOf(result, size);
+	}
+
+	/**
+	 * A bounded max-heap of point indexes keyed by squared distance, used to
+	 * collect the k nearest points. Shared by PointGrid and KdTree.
+	 */
+	static class NearestQueue {
+		private final int[] index;
+		private final long[] distance;
+		private int size;
+
+		NearestQueue(int k) {
+			index = new int[k];
+			distance = new long[k];
+		}
+
+		boolean isFull() {
+			return size == index.length;
+		}
+
+		// the distance of the farthest point kept, or Long.MAX_VALUE while not full
+		long worstDistance() {
+			return isFull() ? distance[0] : Long.MAX_VALUE;
+		}
+
+		void offer(int i, long d) {
+			if (size < index.length) {
+				// sift up
+				int child = size++;
+				while (child > 0) {
+					int parent = (child - 1) / 2;
+					if (distance[parent] >= d)
+						break;
+					index[child] = index[parent];
+					distance[child] = distance[parent];
+					child = parent;
+				}
+				index[child] = i;
+				distance[child] = d;
+			}
+			else if (d < distance[0]) {
+				siftDown(i, d, size);
+			}
+		}
+
+		// places (i,d) at the root and restores the heap over the first length entries
+		private void siftDown(int i, long d, int length) {
+			int parent = 0;
+			while (true) {
+				int child = 2 * parent + 1;
+				if (child >= length)
+					break;
+				if (child + 1 < length && distance[child + 1] > distance[child])
+					child++;
+				if (distance[child] <= d)
+					break;
+				index[parent] = index[child];
+				distance[parent] = distance[child];
+				parent = child;
+			}
+			index[parent] = i;
+			distance[parent] = d;
+		}
+
+		// empties the heap into an array ordered nearest first
+		int[] toSortedArray() {
+			int[] sorted = new int[size];
+			for (int last = size - 1; last >= 0; last--) {
+				sorted[last] = index[0];
+				siftDown(index[last], distance[last], last);
+			}
+			size = 0;
+			return sorted;
+		}
+	}
+}
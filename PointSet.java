@@ -10,37 +10,124 @@
 import java.util.*;
 import java.awt.Point;
 import java.awt.Polygon;
+import java.awt.Rectangle;
 
 public class PointSet {
+	/** the ways getQuickHull can compute the hull */
+	public enum HullStrategy {
+		/** divide and conquer on the farthest point; good when few points are on the hull */
+		QUICK_HULL,
+		/** wraps the hull a vertex at a time, O(nh); for hulls of a handful of points */
+		GIFT_WRAP,
+		/** sorts the points and builds both chains, O(n log n) however many are on the hull */
+		MONOTONE_CHAIN
+	}
+
+	// smaller sets always use quick hull; larger ones are sampled first
+	private static final int MIN_SAMPLED_POINTS = 4096;
+	// number of points in the sample
+	private static final int SAMPLE_SIZE = 1024;
+	// estimated hulls at most this large are gift wrapped
+	private static final int GIFT_WRAP_MAX_HULL = 24;
+	// gift wrapping gives up for a monotone chain after this many vertices
+	private static final int GIFT_WRAP_LIMIT = 4 * GIFT_WRAP_MAX_HULL;
+	// a sample with more than this fraction of its x values repeated is sorted,
+	// since quick hull splits on the leftmost and rightmost x
+	private static final double MAX_DUPLICATE_X = 0.5;
+	// a sample with at least this fraction of its points on its hull is taken
+	// to have points on a curve, whose hull grows with n
+	private static final double CURVE_FRACTION = 0.5;
+
 	// all the points in the collection
 	private ArrayList<Point> points;
+	// the same points, so that duplicates are found without a scan
+	private HashSet<Point> pointSet;
 	// the polygon that makes up the convex hull using the quick hull method
 	private Polygon quickHull;
 	// the polygon that makes up the convex hull using the brute force method
 	private Polygon hull;
 	// a boolean to check if the convex hull needs to be recalculated
 	private boolean hullCalculated = true;
+	// the same for the brute force hull, which only getHull calculates
+	private boolean bruteForceCalculated = true;
+	// how the quick hull was last calculated, and the hull size the sample
+	// predicted, or -1 when the set was too small to sample
+	private HullStrategy hullStrategy = HullStrategy.QUICK_HULL;
+	private int estimatedHullSize = -1;
+	// what the sample found, for diagnostics
+	private int sampleHullSize = -1;
+	private double duplicateXRatio;
+	private long extentWidth, extentHeight;
+	// bucket grid over the points, kept up to date as points are added
+	private PointGrid grid;
+	// kd-tree over the same coordinates, built on demand when the grid is skewed
+	// and brought up to date with the points added since at the next query;
+	// null when it has not been built since the set was cleared
+	private KdTree kdTree;
+	// convex layer depth of every point, or null when it has not been
+	// calculated since the last change
+	private int[] layers;
 	// flag to help debug
 	private boolean DEBUG = false;
 
 	// constructor
 	public PointSet() {
 		points = new ArrayList<Point>();
+		pointSet = new HashSet<Point>();
 		quickHull = new Polygon();
 		hull = new Polygon();
+		grid = new PointGrid();
 	}
 
 	/**
 	 * Adds a single point to the collection
-	 * @param point
+	 * @param point a point whose coordinates pass Line.inRange
 	 */
 	public void addPoint(Point point) {
-		if (!this.points.contains(point)){
+		checkRange(point);
+		if (pointSet.add(point)){
 			this.points.add(point);	
+			grid.add(point.x, point.y);
+			layers = null;
 			hullCalculated = false;	
+			bruteForceCalculated = false;
 		}
 	}		
 
+	/**
+	 * Adds every point in the collection, skipping duplicates
+	 * Takes time proportional to the new points, not to the points already stored
+	 * @param newPoints points whose coordinates pass Line.inRange
+	 */
+	public void addPoints(Collection<Point> newPoints) {
+		points.ensureCapacity(points.size() + newPoints.size());
+		int[] xs = new int[newPoints.size()];
+		int[] ys = new int[newPoints.size()];
+		int added = 0;
+		for (Point pt : newPoints)
+			checkRange(pt);
+		for (Point pt : newPoints) {
+			if (pointSet.add(pt)) {
+				points.add(pt);
+				xs[added] = pt.x;
+				ys[added] = pt.y;
+				added++;
+			}
+		}
+		if (added > 0) {
+			grid.addAll(xs, ys, added);
+			layers = null;
+			hullCalculated = false;
+			bruteForceCalculated = false;
+		}
+	}
+
+	// the hull predicates are exact only within Line.MAX_COORDINATE
+	private static void checkRange(Point pt) {
+		if (!Line.inRange(pt.x, pt.y))
+			throw new IllegalArgumentException("coordinate out of range: (" + pt.x + "," + pt.y + ")");
+	}
+
 	/** returns a specific point from the collection
 	 * 
 	 * @param i: a number between 0 and the number of points
@@ -68,8 +155,66 @@ public class PointSet {
 		if (DEBUG)
 			System.out.println("\n\n\n");
 		points.clear();
+		pointSet.clear();
+		grid.clear();
+		kdTree = null;
+		layers = null;
 		quickHull.reset();
+		hull.reset();
 		hullCalculated = true;  // convex hull is currently empty
+		bruteForceCalculated = true;
+	}
+
+	/**
+	 * returns the stored point closest to (x,y), or null if the collection is empty
+	 * @param x
+	 * @param y
+	 */
+	public Point nearest(int x, int y) {
+		int i = useKdTree() ? kdTree.nearest(x, y) : grid.nearest(x, y);
+		return i < 0 ? null : points.get(i);
+	}
+
+	/**
+	 * returns the k stored points closest to (x,y), nearest first
+	 * @param x
+	 * @param y
+	 * @param k
+	 * @return at most k points, fewer if the collection is smaller
+	 */
+	public ArrayList<Point> kNearest(int x, int y, int k) {
+		return toPoints(useKdTree() ? kdTree.kNearest(x, y, k) : grid.kNearest(x, y, k));
+	}
+
+	/**
+	 * returns all the stored points inside the rectangle, using the same
+	 * bounds as Rectangle.contains: the left and top edges are inside,
+	 * the right and bottom edges are not
+	 * @param rect
+	 */
+	public ArrayList<Point> pointsInRect(Rectangle rect) {
+		int[] found = useKdTree()
+				? kdTree.pointsInRect(rect.x, rect.y, rect.width, rect.height)
+				: grid.pointsInRect(rect.x, rect.y, rect.width, rect.height);
+		return toPoints(found);
+	}
+
+	// queries go to the grid while its cells stay small, otherwise to a kd-tree
+	private boolean useKdTree() {
+		if (!grid.isSkewed())
+			return false;
+		if (kdTree == null)
+			kdTree = new KdTree(grid.xCoordinates(), grid.yCoordinates(), grid.size());
+		else if (kdTree.size() != grid.size())
+			kdTree.update(grid.xCoordinates(), grid.yCoordinates(), grid.size());
+		return true;
+	}
+
+	private ArrayList<Point> toPoints(int[] indexes) {
+		ArrayList<Point> found = new ArrayList<Point>(indexes.length);
+		for (int i : indexes)
+			found.add(points.get(i));
+		return found;
 	}
 
 	/** returns the number of points in the current collection */
@@ -77,26 +222,177 @@ public class PointSet {
 		return points.size();
 	}
 
-	/** returns the convex hull for the current set of points */
+	/** returns the convex hull for the current set of points, by brute force */
 	public Polygon getHull() {
-		if (!hullCalculated) {
-			hullCalculated = true;
+		if (!bruteForceCalculated) {
+			bruteForceCalculated = true;
 			calculateBruteForceConvexHull();
-			calculateQuickHull();
 		}
 		return hull;
 	}
 
-	/** returns the convex hull for the current set of points */
+	/**
+	 * returns the convex hull for the current set of points, computed by
+	 * whichever HullStrategy suits the points best
+	 */
 	public Polygon getQuickHull() {
 		if (!hullCalculated) {
 			hullCalculated = true;
-			calculateBruteForceConvexHull();
-			calculateQuickHull();
+			calculateHull();
 		}
 		return quickHull;
 	}
 
+	/** returns the strategy the current quick hull was computed with */
+	public HullStrategy getHullStrategy() {
+		getQuickHull();
+		return hullStrategy;
+	}
+
+	/**
+	 * returns the hull size predicted from a sample of the points when the
+	 * strategy was chosen, or -1 if the set was small enough not to sample
+	 */
+	public int getEstimatedHullSize() {
+		getQuickHull();
+		return estimatedHullSize;
+	}
+
+	/** returns the strategy, the estimate and the sample it came from, for diagnostics */
+	public String getHullDiagnostics() {
+		getQuickHull();
+		if (estimatedHullSize < 0)
+			return hullStrategy + " (" + points.size() + " points, not sampled)";
+		return String.format("%s (%d points, estimated hull %d; sample of %d: hull %d, extent %dx%d, duplicate x %.2f)",
+				hullStrategy, points.size(), estimatedHullSize, SAMPLE_SIZE, sampleHullSize,
+				extentWidth, extentHeight, duplicateXRatio);
+	}
+
+	/**
+	 * returns the vertices of the quick hull in counter-clockwise order,
+	 * without the repeated leftmost and rightmost points where the upper
+	 * and lower hulls meet in the Polygon
+	 */
+	public ArrayList<Point> getQuickHullVertices() {
+		Polygon polygon = getQuickHull();
+		ArrayList<Point> vertices = new ArrayList<Point>(polygon.npoints);
+		for (int i=0; i<polygon.npoints; i++) {
+			Point pt = new Point(polygon.xpoints[i], polygon.ypoints[i]);
+			if (vertices.isEmpty() || !vertices.get(vertices.size()-1).equals(pt))
+				vertices.add(pt);
+		}
+		if (vertices.size() > 1 && vertices.get(0).equals(vertices.get(vertices.size()-1)))
+			vertices.remove(vertices.size()-1);
+		return vertices;
+	}
+
+	/**
+	 * Returns the convex layer of every point: 0 for the vertices of the
+	 * convex hull, 1 for the vertices of the hull of the points that remain
+	 * once those are removed, and so on. A point lying on a hull edge without
+	 * being a vertex belongs to a deeper layer.
+	 *
+	 * The points are sorted once and cut into blocks of consecutive x order,
+	 * each keeping the hull of its remaining points. A layer is peeled by a
+	 * monotone chain pass over just the block hulls, and only the blocks that
+	 * lost points are recomputed, so interior points are not rescanned for
+	 * every layer.
+	 * @return the layer of each point, indexed like getPoints()
+	 */
+	public int[] getConvexLayers() {
+		if (layers == null)
+			layers = calculateConvexLayers();
+		return layers.clone();
+	}
+
+	private int[] calculateConvexLayers() {
+		int n = points.size();
+		int[] xs = grid.xCoordinates(), ys = grid.yCoordinates();
+
+		int[] order = new int[n];
+		for (int i=0; i<n; i++)
+			order[i] = i;
+		IndexSort.sortByXY(order, 0, n, xs, ys, new int[n]);
+		// work on copies of the coordinates in sorted order, so each block and
+		// its hull sit together in memory; k below is a position in this order
+		int[] sx = new int[n], sy = new int[n];
+		for (int k=0; k<n; k++) {
+			sx[k] = xs[order[k]];
+			sy[k] = ys[order[k]];
+		}
+		int[] layerAt = new int[n];
+		Arrays.fill(layerAt, -1);
+
+		// block b covers positions [b*size, (b+1)*size); its lower hull is kept
+		// ascending and its upper hull descending, both at offset b*size
+		int size = Math.max(32, (int) Math.sqrt(n) / 8);
+		int blocks = (n + size - 1) / size;
+		int[] lower = new int[n], upper = new int[n];
+		int[] lowerCount = new int[blocks], upperCount = new int[blocks];
+		boolean[] dirty = new boolean[blocks];
+		Arrays.fill(dirty, true);
+		int[] chain = new int[2 * n + 1];
+
+		int remaining = n;
+		for (int layer = 0; remaining > 0; layer++) {
+			for (int b=0; b<blocks; b++) {
+				if (!dirty[b])
+					continue;
+				int from = b * size, to = Math.min(n, from + size);
+				int top = from;
+				for (int k=from; k<to; k++)
+					if (layerAt[k] < 0)
+						top = pushHullPoint(lower, top, from, k, sx, sy);
+				lowerCount[b] = top - from;
+				top = from;
+				for (int k=to-1; k>=from; k--)
+					if (layerAt[k] < 0)
+						top = pushHullPoint(upper, top, from, k, sx, sy);
+				upperCount[b] = top - from;
+				dirty[b] = false;
+			}
+
+			// every vertex of the lower hull of all remaining points is on the lower
+			// hull of its block, and likewise for the upper hull
+			int top = 0;
+			for (int b=0; b<blocks; b++)
+				for (int k=0; k<lowerCount[b]; k++)
+					top = pushHullPoint(chain, top, 0, lower[b * size + k], sx, sy);
+			int lowerEnd = top;
+			for (int b=blocks-1; b>=0; b--)
+				for (int k=0; k<upperCount[b]; k++)
+					top = pushHullPoint(chain, top, lowerEnd - 1, upper[b * size + k], sx, sy);
+
+			// peel the layer; only the blocks that lose points need new hulls
+			for (int c=0; c<top; c++) {
+				int k = chain[c];
+				if (layerAt[k] < 0) {
+					layerAt[k] = layer;
+					dirty[k / size] = true;
+					remaining--;
+				}
+			}
+		}
+
+		int[] depth = new int[n];
+		for (int k=0; k<n; k++)
+			depth[order[k]] = layerAt[k];
+		return depth;
+	}
+
+	// pushes point i onto a monotone chain whose current pass began at start,
+	// first popping every point that would no longer make a counter-clockwise
+	// turn; pushing a point equal to the one on top leaves the chain unchanged
+	static int pushHullPoint(int[] chain, int top, int start, int i, int[] xs, int[] ys) {
+		if (top > start && xs[chain[top-1]] == xs[i] && ys[chain[top-1]] == ys[i])
+			return top;
+		while (top - start >= 2 && Line.determinant(xs[chain[top-2]], ys[chain[top-2]],
+				xs[chain[top-1]], ys[chain[top-1]], xs[i], ys[i]) >= 0)
+			top--;
+		chain[top] = i;
+		return top + 1;
+	}
+
 	public Point[] getClosestPoints() {
 		if (points.size() >= 2) {
 			Point[] array = new Point[2];
@@ -120,10 +416,7 @@ public class PointSet {
 	/** returns convex hull points */
 	public String convexHullToString() {
 		String hullPoints = "Convex Hull:\n";
-		if (!hullCalculated) {
-			calculateBruteForceConvexHull();
-			calculateQuickHull();
-		}
+		getQuickHull();
 		for (int i=0; i<quickHull.npoints; i++){
 			hullPoints = hullPoints + "\t(" + quickHull.xpoints[i] +"," 
 					+ quickHull.ypoints[i] + ")\n";	
@@ -131,6 +424,149 @@ public class PointSet {
 		return hullPoints;
 	}	
 
+	// samples the points to choose a strategy, then calculates the quick hull
+	// Polygon with it
+	private void calculateHull() {
+		chooseHullStrategy();
+		if (DEBUG)
+			System.out.println(getHullDiagnostics());
+
+		int n = points.size();
+		int[] xs = grid.xCoordinates(), ys = grid.yCoordinates();
+		if (hullStrategy == HullStrategy.GIFT_WRAP) {
+			int[] ring = giftWrap(xs, ys, n, GIFT_WRAP_LIMIT);
+			if (ring != null) {
+				int split = 0;
+				for (int k=1; k<ring.length; k++)
+					if (IndexSort.compare(ring[k], ring[split], xs, ys) > 0)
+						split = k;
+				setQuickHull(ring, ring.length, split, xs, ys);
+				return;
+			}
+			// the sample missed most of the hull
+			hullStrategy = HullStrategy.MONOTONE_CHAIN;
+		}
+		if (hullStrategy == HullStrategy.MONOTONE_CHAIN) {
+			int[] chain = new int[n + 1];
+			int[] order = new int[n];
+			for (int i=0; i<n; i++)
+				order[i] = i;
+			IndexSort.sortByXY(order, 0, n, xs, ys, new int[n]);
+			int top = 0;
+			for (int k=0; k<n; k++)
+				top = pushHullPoint(chain, top, 0, order[k], xs, ys);
+			int lowerEnd = top;
+			for (int k=n-2; k>=0; k--)
+				top = pushHullPoint(chain, top, lowerEnd - 1, order[k], xs, ys);
+			setQuickHull(chain, Math.max(1, top - 1), lowerEnd - 1, xs, ys);
+			return;
+		}
+		calculateQuickHull();
+	}
+
+	// estimates the hull from a sample of the points and picks the strategy
+	private void chooseHullStrategy() {
+		int n = points.size();
+		hullStrategy = HullStrategy.QUICK_HULL;
+		estimatedHullSize = -1;
+		sampleHullSize = -1;
+		if (n < MIN_SAMPLED_POINTS)
+			return;
+
+		// one point from each of SAMPLE_SIZE equal runs of the points, so the
+		// sample has no repeats and still covers sets added in sorted order
+		int[] xs = grid.xCoordinates(), ys = grid.yCoordinates();
+		Random random = new Random(n);
+		int[] sample = new int[SAMPLE_SIZE];
+		for (int k=0; k<SAMPLE_SIZE; k++) {
+			int from = (int) ((long) k * n / SAMPLE_SIZE);
+			int to = (int) ((long) (k + 1) * n / SAMPLE_SIZE);
+			sample[k] = from + random.nextInt(to - from);
+		}
+		IndexSort.sortByXY(sample, 0, SAMPLE_SIZE, xs, ys, new int[SAMPLE_SIZE]);
+
+		int minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE, repeatedX = 0;
+		for (int k=0; k<SAMPLE_SIZE; k++) {
+			minY = Math.min(minY, ys[sample[k]]);
+			maxY = Math.max(maxY, ys[sample[k]]);
+			if (k > 0 && xs[sample[k]] == xs[sample[k-1]])
+				repeatedX++;
+		}
+		extentWidth = (long) xs[sample[SAMPLE_SIZE-1]] - xs[sample[0]];
+		extentHeight = (long) maxY - minY;
+		duplicateXRatio = (double) repeatedX / SAMPLE_SIZE;
+
+		int[] chain = new int[SAMPLE_SIZE + 1];
+		int top = 0;
+		for (int k=0; k<SAMPLE_SIZE; k++)
+			top = pushHullPoint(chain, top, 0, sample[k], xs, ys);
+		int lowerEnd = top;
+		for (int k=SAMPLE_SIZE-2; k>=0; k--)
+			top = pushHullPoint(chain, top, lowerEnd - 1, sample[k], xs, ys);
+		sampleHullSize = Math.max(1, top - 1);
+
+		// points filling a polygon have a hull that grows with log n, points on
+		// a curve one that grows with n
+		double fraction = (double) sampleHullSize / SAMPLE_SIZE;
+		if (fraction >= CURVE_FRACTION)
+			estimatedHullSize = (int) Math.round(fraction * n);
+		else
+			estimatedHullSize = (int) Math.round(sampleHullSize * Math.log(n) / Math.log(SAMPLE_SIZE));
+
+		if (extentWidth == 0 || extentHeight == 0 || duplicateXRatio > MAX_DUPLICATE_X)
+			hullStrategy = HullStrategy.MONOTONE_CHAIN;
+		else if (estimatedHullSize <= GIFT_WRAP_MAX_HULL)
+			hullStrategy = HullStrategy.GIFT_WRAP;
+		else if (estimatedHullSize >= Math.sqrt(n))
+			hullStrategy = HullStrategy.MONOTONE_CHAIN;
+	}
+
+	// returns the hull vertices counter-clockwise from the lowest leftmost
+	// point, found by wrapping; null if there are more than limit of them
+	private static int[] giftWrap(int[] xs, int[] ys, int n, int limit) {
+		int start = 0;
+		for (int i=1; i<n; i++)
+			if (IndexSort.compare(i, start, xs, ys) < 0)
+				start = i;
+		int[] ring = new int[limit];
+		int count = 0, p = start;
+		do {
+			if (count == limit)
+				return null;
+			ring[count++] = p;
+			// the next vertex has no point clockwise of the edge to it, and is
+			// the farthest of any points on that edge
+			int q = -1;
+			for (int i=0; i<n; i++) {
+				if (i == p)
+					continue;
+				if (q < 0) {
+					q = i;
+					continue;
+				}
+				long d = Line.determinant(xs[p], ys[p], xs[q], ys[q], xs[i], ys[i]);
+				if (d > 0 || (d == 0 && Math.abs((long) xs[i] - xs[p]) + Math.abs((long) ys[i] - ys[p])
+						> Math.abs((long) xs[q] - xs[p]) + Math.abs((long) ys[q] - ys[p])))
+					q = i;
+			}
+			p = q;
+		} while (p >= 0 && p != start);
+		return Arrays.copyOf(ring, count);
+	}
+
+	// fills the quick hull Polygon from count vertex indexes in counter-clockwise
+	// order, starting at the leftmost with the rightmost at split, in the same
+	// layout as calculateQuickHull: the leftmost, the chain to the rightmost,
+	// the rightmost again, and the chain back to the leftmost
+	private void setQuickHull(int[] ring, int count, int split, int[] xs, int[] ys) {
+		quickHull.reset();
+		for (int k=0; k<=split; k++)
+			quickHull.addPoint(xs[ring[k]], ys[ring[k]]);
+		for (int k=split; k<count; k++)
+			quickHull.addPoint(xs[ring[k]], ys[ring[k]]);
+		quickHull.addPoint(xs[ring[0]], ys[ring[0]]);
+	}
+
 	// this method calculates the convex hull of the point set, using a divide and conquer technique
 	// see pages 195 - 197 of your textbook
 	private void calculateQuickHull(){
@@ -170,16 +606,9 @@ public class PointSet {
 
 		Line middleLine = new Line(left, right);
 
+		// getPointsAbove removes the upper points from set, leaving behind the lower points
 		ArrayList<Point> ptsAboveMiddle = this.getPointsAbove(middleLine, set);
 
-		/**
-		 * Removes upper points from set leaving behind the lower points.
-		 */
-		for(Point p : ptsAboveMiddle)
-		{
-			set.remove(p);
-		}
-
 		upperHull = this.calculateUpperHull(middleLine, ptsAboveMiddle);
 		lowerHull = this.calculateLowerHull(middleLine, set);
 
@@ -237,16 +666,18 @@ public class PointSet {
 	// these points are also removed from the set parameter
 	private ArrayList<Point> getPointsAbove(Line line, ArrayList<Point> set) {
 		ArrayList<Point> pointsAbove = new ArrayList<Point>(set.size());
+		int remaining = 0;
 
-		// determine which lines fall above the line
+		// determine which lines fall above the line, compacting the rest to the front
+		// of set in a single pass instead of removing each point by value
 		for (int i=0; i<set.size(); i++){
 			Point pt = set.get(i);		
-			if (line.isBelow(pt))	{	     // point falls above line
+			if (line.isBelow(pt))	     // point falls above line
 				pointsAbove.add(pt);
-				set.remove(pt);
-				i--;
-			}
+			else
+				set.set(remaining++, pt);
 		}
+		set.subList(remaining, set.size()).clear();
 		return pointsAbove;
 	}
 
@@ -286,7 +717,7 @@ public class PointSet {
 		}
 		// base case #2: only two points
 		else if (start == end-1) {
-			if (points.get(start).x < points.get(end).x){
+			if (isLeftOf(points.get(start), points.get(end))){
 				leftRight[0] = points.get(start);
 				leftRight[1] = points.get(end);
 			}
@@ -301,12 +732,12 @@ public class PointSet {
 			Point[] firstHalf = findLeftRight(start, mid);
 			Point[] secondHalf = findLeftRight(mid+1, end);
 			// find leftmost point
-			if (firstHalf[0].x < secondHalf[0].x)
+			if (isLeftOf(firstHalf[0], secondHalf[0]))
 				leftRight[0] = firstHalf[0];
 			else
 				leftRight[0] = secondHalf[0];
 			// find rightmost point
-			if (firstHalf[1].x < secondHalf[1].x)
+			if (isLeftOf(firstHalf[1], secondHalf[1]))
 				leftRight[1] = secondHalf[1];
 			else 
 				leftRight[1] = firstHalf[1];
@@ -314,12 +745,18 @@ public class PointSet {
 		return leftRight;	
 	}	
 
+	// orders points by x and then by y, so the leftmost and rightmost points
+	// are distinct whenever the points are, even on a vertical line
+	private static boolean isLeftOf(Point a, Point b) {
+		return a.x < b.x || (a.x == b.x && a.y < b.y);
+	}
+
 	// calculates the convex hull from the current set of points
 	// this method currently does not work!
 	// You may NOT use the Polygon contains method in your final solution.
 	private void calculateBruteForceConvexHull() {
 		hull.reset();
-		hullCalculated = false;
+		boolean wrapped = false;
 
 
 		Line currentEdge;
@@ -334,7 +771,7 @@ public class PointSet {
 		hull.addPoint(currentPoint.x, currentPoint.y);
 		if(points.size() > 4)
 		{
-			while(hullCalculated == false) 
+			while(wrapped == false) 
 			{
 				if (currentPoint.equals(points.get(0)))
 					nextPoint = points.get(1);
@@ -352,7 +789,7 @@ public class PointSet {
 				}
 				if (hullPoints.contains(nextPoint))
 				{
-					hullCalculated = true;
+					wrapped = true;
 				}
 				else
 				{
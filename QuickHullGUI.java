@@ -6,10 +6,24 @@
  * 
  * This is a truly ugly class cobbled together from other classes to serve
  * as a GUI for the convex hull lab.
+ *
+ * The stress controls along the bottom fill the point set with 10k to 10M
+ * generated points, or stream points in at a fixed rate, so the hull and
+ * the drawing can be watched at scale. Generated points use a finer grid
+ * than the screen (STRESS_SCALE units per pixel) so that millions of them
+ * stay distinct. Large sets are drawn into an image a point at a time and
+ * are not labelled or listed. Show Stats overlays the hull time, paint
+ * time, frame rate and heap use. 10M points need a heap of about 4g
+ * (java -Xmx4g QuickHullGUI).
  */
 
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
 import javax.swing.*;
 import javax.swing.border.LineBorder;
 
@@ -20,6 +34,28 @@ public class QuickHullGUI extends Frame implements ActionListener
 	private static int WINDOW_SIZE = 1000; //value that determines windowsize
 	private static int DOT_THICKNESS = 2; //size of dots
 	private static int CANVAS_SIZE = 800;
+	private static int STRESS_SCALE = 16; //coordinate units per pixel for generated points
+	private static int LABEL_LIMIT = 1000; //larger sets are not labelled or listed
+	private static int BRUTE_FORCE_LIMIT = 5000; //larger sets skip the brute force hull
+	private static int STREAM_TICK = 20; //milliseconds between streamed batches
+
+	//the shapes the stress controls can generate
+	private enum Distribution
+	{
+		UNIFORM("Uniform"), DISK("Disk"), CIRCLE("Circle"), CLUSTERS("Clusters");
+
+		private final String label;
+
+		Distribution(String label)
+		{
+			this.label = label;
+		}
+
+		public String toString()
+		{
+			return label;
+		}
+	}
 
 	//GUI Objects
 	private DrawingPanel drawerPanel;
@@ -33,6 +69,13 @@ public class QuickHullGUI extends Frame implements ActionListener
 	private boolean showHull, showBrute;
 	private boolean showClosest;
 
+	//stress controls
+	private JPanel stressPanel;
+	private JComboBox<Distribution> distributionChoice;
+	private JComboBox<Integer> countChoice, rateChoice;
+	private JButton generateButton, streamButton, showStatsButton;
+	private boolean showStats;
+
 	/*
 	 * Creates an instance of itself.
 	 */
@@ -124,6 +167,37 @@ public class QuickHullGUI extends Frame implements ActionListener
 		buttonPanel.add(quitButton);
 		this.add(buttonPanel, BorderLayout.NORTH);
 
+		//add stress controls
+		distributionChoice = new JComboBox<Distribution>(Distribution.values());
+		countChoice = new JComboBox<Integer>(new Integer[] {10000, 100000, 1000000, 10000000});
+		rateChoice = new JComboBox<Integer>(new Integer[] {100, 1000, 10000, 100000});
+		rateChoice.setSelectedIndex(1);
+
+		generateButton = new JButton("Generate");
+		generateButton.addActionListener(this);
+		generateButton.setActionCommand("generate");
+
+		streamButton = new JButton("Start Streaming");
+		streamButton.addActionListener(this);
+		streamButton.setActionCommand("stream");
+
+		showStatsButton = new JButton("Show Stats");
+		showStatsButton.addActionListener(this);
+		showStatsButton.setActionCommand("stats");
+		showStats = false;
+
+		stressPanel = new JPanel();
+		stressPanel.setLayout(new FlowLayout());
+		stressPanel.add(distributionChoice);
+		stressPanel.add(countChoice);
+		stressPanel.add(new JLabel("points"));
+		stressPanel.add(generateButton);
+		stressPanel.add(rateChoice);
+		stressPanel.add(new JLabel("points/sec"));
+		stressPanel.add(streamButton);
+		stressPanel.add(showStatsButton);
+		this.add(stressPanel, BorderLayout.SOUTH);
+
 		//finish configuring the frame
 		this.setTitle("Quick Convex Hull");
 		this.add(drawerWindow, BorderLayout.CENTER);
@@ -165,6 +239,37 @@ public class QuickHullGUI extends Frame implements ActionListener
 		{
 			drawerPanel.resetList();
 		}
+		else if ("generate".equals(evt.getActionCommand()))
+		{
+			generateButton.setEnabled(false);
+			drawerPanel.generate((Distribution) distributionChoice.getSelectedItem(),
+					(Integer) countChoice.getSelectedItem());
+		}
+		else if ("stream".equals(evt.getActionCommand()))
+		{
+			if (drawerPanel.isStreaming()) {
+				streamButton.setText("Start Streaming");
+				drawerPanel.stopStreaming();
+			}
+			else
+			{
+				streamButton.setText("Stop Streaming");
+				drawerPanel.startStreaming((Distribution) distributionChoice.getSelectedItem(),
+						(Integer) rateChoice.getSelectedItem());
+			}
+		}
+		else if ("stats".equals(evt.getActionCommand()))
+		{
+			if (showStats) {
+				showStatsButton.setText("Show Stats");
+				showStats = false;
+			}
+			else
+			{
+				showStatsButton.setText("Hide Stats");
+				showStats = true;
+			}
+		}
 		else if ("closest".equals(evt.getActionCommand()))
 		{
 			if (showClosest) {
@@ -201,6 +306,26 @@ public class QuickHullGUI extends Frame implements ActionListener
 		private JTextArea canvasVerticalSizer;
 		private JTextArea canvasHorizontalSizer;
 
+		//coordinate units per pixel; STRESS_SCALE once points have been generated
+		private int scale = 1;
+		//large sets are drawn here, and only points added since the last paint are drawn
+		private BufferedImage pointImage;
+		private int imagePoints;
+		//streaming state
+		private javax.swing.Timer streamTimer;
+		private Distribution streamDistribution;
+		private int streamRate;
+		private double streamCarry;
+		private long lastStreamBatch;
+		private Point[] clusterCenters;
+		private Random random = new Random();
+		//measurements for the stats overlay
+		private long hullNanos = -1, paintNanos, generateNanos = -1;
+		private int hullPointCount = -1;
+		private int frames;
+		private long frameWindowStart = System.nanoTime();
+		private double fps;
+
 		/*
 		 * Create the panel, set the color, initialize the point list.
 		 */  
@@ -234,7 +359,7 @@ public class QuickHullGUI extends Frame implements ActionListener
 			redrawVertexList = true;
 
 			//create new click point and add it to the array list
-			Point newPoint = new Point(e.getX(),e.getY());
+			Point newPoint = new Point(e.getX() * scale, e.getY() * scale);
 			points.addPoint(newPoint);
 			this.repaint();
 		}  
@@ -246,9 +371,19 @@ public class QuickHullGUI extends Frame implements ActionListener
 		//override panel paint method to draw the polygon
 		public void paintComponent(Graphics pic)
 		{
-
+			long start = System.nanoTime();
 			pic.setColor(Color.black); //set the draw color
 			connectTheDots(pic); //actual repaint method
+			if (showStats)
+				drawStats(pic);
+			paintNanos = System.nanoTime() - start;
+
+			frames++;
+			if (start - frameWindowStart >= 1000000000L) {
+				fps = frames * 1e9 / (start - frameWindowStart);
+				frames = 0;
+				frameWindowStart = start;
+			}
 		}
 
 		/*
@@ -271,8 +406,14 @@ public class QuickHullGUI extends Frame implements ActionListener
 
 			}    
 
+			//large sets go through the point image, without labels
+			if (points.getNumber() > LABEL_LIMIT)
+			{
+				drawPointImage(pic);
+				vertexList = vertexList + "  " + points.getNumber() + " points, too many to list\n";
+			}
 			//iterate through the point list
-			for(int i = 0; i < points.getNumber(); i++)
+			else for(int i = 0; i < points.getNumber(); i++)
 			{
 				//current list point values
 				point = points.getPoint(i);
@@ -281,28 +422,41 @@ public class QuickHullGUI extends Frame implements ActionListener
 
 				//draw the dot, visibly
 				pic.setColor(Color.black);
-				pic.fillOval(x,y,DOT_THICKNESS+2,DOT_THICKNESS+2);
+				pic.fillOval(x/scale,y/scale,DOT_THICKNESS+2,DOT_THICKNESS+2);
 				vertexList = vertexList + "  Point " + i + ": (" + point.x + " , " + point.y + ")\n";
 				//MNEY - Put location next to the points.
 				shortVertList = "(" + point.x + "," + point.y + ")\n";
-				pic.drawString(shortVertList, point.x, point.y);
+				pic.drawString(shortVertList, point.x/scale, point.y/scale);
 			}
 
 			if (showHull)
 			{
 				if (points.getNumber() >= 2) {
 					pic.setColor(Color.blue);
+					long start = System.nanoTime();
 					Polygon hull = points.getQuickHull();
-					pic.drawPolygon(hull);
-					vertexList = vertexList + "\n" + points.convexHullToString();
+					//only a hull of new points was calculated rather than cached
+					if (points.getNumber() != hullPointCount) {
+						hullNanos = System.nanoTime() - start;
+						hullPointCount = points.getNumber();
+					}
+					pic.drawPolygon(toScreen(hull));
+					if (points.getNumber() > LABEL_LIMIT)
+						vertexList = vertexList + "\nConvex Hull: " + points.getQuickHullVertices().size()
+								+ " vertices, " + points.getHullStrategy() + "\n";
+					else
+						vertexList = vertexList + "\n" + points.convexHullToString();
 				}
 			}
 			if (showBrute) 
 			{
-				if (points.getNumber() >= 2) {
+				if (points.getNumber() > BRUTE_FORCE_LIMIT) {
+					vertexList = vertexList + "\nBrute force hull skipped above " + BRUTE_FORCE_LIMIT + " points\n";
+				}
+				else if (points.getNumber() >= 2) {
 					pic.setColor(Color.orange);
 					Polygon hull = points.getHull();
-					pic.drawPolygon(hull);
+					pic.drawPolygon(toScreen(hull));
 				}
 			}
 			if (showClosest)
@@ -310,8 +464,8 @@ public class QuickHullGUI extends Frame implements ActionListener
 				if (points.getNumber() > 1) {
 					pic.setColor(Color.red);
 					Point[] closest = points.getClosestPoints();
-					pic.drawLine(closest[0].x, closest[0].y, 
-							closest[1].x, closest[1].y);
+					pic.drawLine(closest[0].x/scale, closest[0].y/scale, 
+							closest[1].x/scale, closest[1].y/scale);
 				}
 			}
 			if (redrawVertexList)
@@ -327,7 +481,213 @@ public class QuickHullGUI extends Frame implements ActionListener
 		public void resetList()
 		{
 			points.clear();
+			//a running stream carries on into the empty set at the stress scale
+			scale = isStreaming() ? STRESS_SCALE : 1;
+			if (isStreaming())
+				clusterCenters = newClusterCenters(random, scale);
+			hullPointCount = -1;
+			redrawVertexList = true;
+		}
+
+		/*
+		 * Replaces the points with count generated ones. They are generated
+		 * and added off the event thread, so the window stays responsive.
+		 */
+		public void generate(final Distribution distribution, final int count)
+		{
+			final long start = System.nanoTime();
+			new SwingWorker<PointSet, Void>()
+			{
+				protected PointSet doInBackground()
+				{
+					Random random = new Random();
+					Point[] centers = newClusterCenters(random, STRESS_SCALE);
+					ArrayList<Point> generated = new ArrayList<Point>(count);
+					for (int i = 0; i < count; i++)
+						generated.add(randomPoint(distribution, random, centers, STRESS_SCALE));
+					PointSet set = new PointSet();
+					set.addPoints(generated);
+					return set;
+				}
+
+				protected void done()
+				{
+					try
+					{
+						points = get();
+						scale = STRESS_SCALE;
+						generateNanos = System.nanoTime() - start;
+						hullPointCount = -1;
+						pointImage = null;
+						if (isStreaming())
+							clusterCenters = newClusterCenters(random, scale);
+						redrawVertexList = true;
+						repaint();
+					}
+					catch (InterruptedException | ExecutionException e)
+					{
+						Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+						vertexWindowText.setText("Could not generate " + count + " points:\n" + cause);
+					}
+					generateButton.setEnabled(true);
+				}
+			}.execute();
+		}
+
+		public boolean isStreaming()
+		{
+			return streamTimer != null;
+		}
+
+		/*
+		 * Adds rate points a second from the distribution until stopped,
+		 * a batch every STREAM_TICK milliseconds. Batches are sized by the
+		 * time since the last one, so the rate holds when the timer falls
+		 * behind a slow hull or paint.
+		 */
+		public void startStreaming(Distribution distribution, int rate)
+		{
+			if (points.getNumber() == 0)
+				scale = STRESS_SCALE;
+			streamDistribution = distribution;
+			streamRate = rate;
+			streamCarry = 0;
+			lastStreamBatch = System.nanoTime();
+			clusterCenters = newClusterCenters(random, scale);
+			streamTimer = new javax.swing.Timer(STREAM_TICK, e -> streamBatch());
+			streamTimer.start();
+		}
+
+		public void stopStreaming()
+		{
+			if (streamTimer != null)
+				streamTimer.stop();
+			streamTimer = null;
+		}
+
+		private void streamBatch()
+		{
+			long now = System.nanoTime();
+			streamCarry += streamRate * (now - lastStreamBatch) / 1e9;
+			lastStreamBatch = now;
+			int count = (int) streamCarry;
+			streamCarry -= count;
+			ArrayList<Point> batch = new ArrayList<Point>(count);
+			for (int i = 0; i < count; i++)
+				batch.add(randomPoint(streamDistribution, random, clusterCenters, scale));
+			points.addPoints(batch);
 			redrawVertexList = true;
+			repaint();
+		}
+
+		/*
+		 * Picks a few cluster centres away from the edges of the canvas.
+		 */
+		private Point[] newClusterCenters(Random random, int scale)
+		{
+			int size = CANVAS_SIZE * scale;
+			Point[] centers = new Point[12];
+			for (int i = 0; i < centers.length; i++)
+				centers[i] = new Point(size / 8 + random.nextInt(size * 3 / 4), size / 8 + random.nextInt(size * 3 / 4));
+			return centers;
+		}
+
+		/*
+		 * Returns a random point on the canvas, in units of 1/scale pixel.
+		 */
+		private Point randomPoint(Distribution distribution, Random random, Point[] centers, int scale)
+		{
+			int size = CANVAS_SIZE * scale;
+			double x, y;
+			double angle = 2 * Math.PI * random.nextDouble();
+			switch (distribution)
+			{
+			case DISK:
+				double radius = 0.45 * size * Math.sqrt(random.nextDouble());
+				x = size / 2 + radius * Math.cos(angle);
+				y = size / 2 + radius * Math.sin(angle);
+				break;
+			case CIRCLE:
+				x = size / 2 + 0.45 * size * Math.cos(angle);
+				y = size / 2 + 0.45 * size * Math.sin(angle);
+				break;
+			case CLUSTERS:
+				Point center = centers[random.nextInt(centers.length)];
+				x = center.x + random.nextGaussian() * size / 40;
+				y = center.y + random.nextGaussian() * size / 40;
+				break;
+			default:
+				x = random.nextInt(size);
+				y = random.nextInt(size);
+			}
+			return new Point((int) Math.max(0, Math.min(size - 1, x)), (int) Math.max(0, Math.min(size - 1, y)));
+		}
+
+		/*
+		 * Draws the points through an image that keeps the points drawn
+		 * before, so each paint only plots the points added since.
+		 */
+		private void drawPointImage(Graphics pic)
+		{
+			int width = Math.max(1, getWidth()), height = Math.max(1, getHeight());
+			if (pointImage == null || pointImage.getWidth() != width || pointImage.getHeight() != height
+					|| imagePoints > points.getNumber())
+			{
+				pointImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+				imagePoints = 0;
+			}
+			int[] pixels = ((DataBufferInt) pointImage.getRaster().getDataBuffer()).getData();
+			ArrayList<Point> list = points.getPoints();
+			for (int i = imagePoints; i < list.size(); i++)
+			{
+				Point point = list.get(i);
+				int x = point.x / scale, y = point.y / scale;
+				if (x >= 0 && x < width && y >= 0 && y < height)
+					pixels[y * width + x] = 0xff000000;
+			}
+			imagePoints = list.size();
+			pic.drawImage(pointImage, 0, 0, null);
+		}
+
+		/*
+		 * Returns the polygon in screen pixels.
+		 */
+		private Polygon toScreen(Polygon polygon)
+		{
+			if (scale == 1)
+				return polygon;
+			Polygon screen = new Polygon();
+			for (int i = 0; i < polygon.npoints; i++)
+				screen.addPoint(polygon.xpoints[i] / scale, polygon.ypoints[i] / scale);
+			return screen;
+		}
+
+		/*
+		 * Draws the timings and heap use over the top left of the canvas.
+		 */
+		private void drawStats(Graphics pic)
+		{
+			Runtime runtime = Runtime.getRuntime();
+			long used = (runtime.totalMemory() - runtime.freeMemory()) >> 20;
+			String[] lines = {
+				"points: " + points.getNumber() + (isStreaming() ? " (+" + streamRate + "/s)" : ""),
+				"hull: " + (hullNanos < 0 ? "-" : String.format("%.1f ms", hullNanos / 1e6))
+						+ (showHull && points.getNumber() >= 2 ? " " + points.getHullStrategy() : ""),
+				String.format("paint: %.1f ms (last frame)", paintNanos / 1e6),
+				String.format("fps: %.1f", fps),
+				"heap: " + used + " / " + (runtime.maxMemory() >> 20) + " MB",
+				"generate: " + (generateNanos < 0 ? "-" : String.format("%.0f ms", generateNanos / 1e6))
+			};
+			FontMetrics metrics = pic.getFontMetrics();
+			int width = 0;
+			for (String line : lines)
+				width = Math.max(width, metrics.stringWidth(line));
+			int lineHeight = metrics.getHeight();
+			pic.setColor(new Color(255, 255, 224, 220));
+			pic.fillRect(4, 4, width + 12, lineHeight * lines.length + 8);
+			pic.setColor(Color.darkGray);
+			for (int i = 0; i < lines.length; i++)
+				pic.drawString(lines[i], 10, 8 + metrics.getAscent() + i * lineHeight);
 		}
 
 		/*